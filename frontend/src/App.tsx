@@ -1,7 +1,7 @@
 import { useEffect, useMemo, useState } from 'react';
 import './App.css';
 import { useNavigate } from 'react-router-dom';
-import { apiGet, apiPost } from './api';
+import { apiGet, apiPost, apiPostQueued } from './api';
 import { getToken } from './auth';
 import { Alert, Box, Button, Card, CardContent, Chip, Divider, Skeleton, Stack, TextField, Typography, Tabs, Tab, Grid, Stepper, Step, StepLabel, Container, Paper } from '@mui/material';
 import { ThemeProvider, createTheme } from '@mui/material/styles';
@@ -65,7 +65,7 @@ interface SeatDto {
 }
 
 interface CoachDto { id: number; code: string; classType: string; available: number; reserved: number; booked: number; total: number; }
-interface CreateBookingResponse { bookingId: number; orderId: string; razorpayKeyId: string; amount: number; currency: string; pnrNumber?: string; }
+interface CreateBookingResponse { bookingId: number; status?: string; orderId: string | null; razorpayKeyId: string; amount: number; currency: string; pnrNumber?: string; }
 
 interface SearchFilters {
   source: string;
@@ -307,12 +307,15 @@ function App() {
     }
   }, [events]);
 
+  // Seat availability is kept per journey date; the backend falls back to the train's own date
+  const dateQuery = journeyDate ? `?journeyDate=${encodeURIComponent(journeyDate)}` : '';
+
   useEffect(() => {
     if (!selectedEvent) return;
     let active = true;
     setLoadingCoaches(true);
     setCoachesError(null);
-    apiGet<CoachDto[]>(`/api/events/${selectedEvent.id}/coaches`)
+    apiGet<CoachDto[]>(`/api/events/${selectedEvent.id}/coaches${dateQuery}`)
       .then((data) => {
         if (!active) return;
         setCoaches(data);
@@ -322,7 +325,7 @@ function App() {
           setSelectedCoachId(null);
           setLoadingSeats(true);
           setSeatsError(null);
-          apiGet<SeatDto[]>(`/api/events/${selectedEvent.id}/seats`)
+          apiGet<SeatDto[]>(`/api/events/${selectedEvent.id}/seats${dateQuery}`)
             .then((ss) => { if (active) setSeats(ss); })
             .catch((err) => { if (active) setSeatsError(err.message || 'Failed to load seats'); })
             .finally(() => { if (active) setLoadingSeats(false); });
@@ -331,30 +334,29 @@ function App() {
       .catch((err) => { if (active) setCoachesError(err.message || 'Failed to load coaches'); })
       .finally(() => { if (active) setLoadingCoaches(false); });
     return () => { active = false; };
-  }, [selectedEvent?.id]);
+  }, [selectedEvent?.id, dateQuery]);
 
   useEffect(() => {
     if (!selectedCoachId) return;
     let active = true;
     setLoadingSeats(true);
     setSeatsError(null);
-    apiGet<SeatDto[]>(`/api/events/coaches/${selectedCoachId}/seats`)
+    apiGet<SeatDto[]>(`/api/events/coaches/${selectedCoachId}/seats${dateQuery}`)
       .then((data) => { if (active) setSeats(data); })
       .catch((err) => { if (active) setSeatsError(err.message || 'Failed to load seats'); })
       .finally(() => { if (active) setLoadingSeats(false); });
     return () => { active = false; };
-  }, [selectedCoachId]);
+  }, [selectedCoachId, dateQuery]);
 
   useEffect(() => {
     if (!selectedCoachId) return;
-    const timer = setInterval(() => { apiGet<SeatDto[]>(`/api/events/coaches/${selectedCoachId}/seats`).then(setSeats).catch(() => {}); }, 5000);
+    const timer = setInterval(() => { apiGet<SeatDto[]>(`/api/events/coaches/${selectedCoachId}/seats${dateQuery}`).then(setSeats).catch(() => {}); }, 5000);
     return () => clearInterval(timer);
-  }, [selectedCoachId]);
+  }, [selectedCoachId, dateQuery]);
 
   useEffect(() => {
     if (!selectedEvent) return;
-    let cancelled = false;
-    const es = new EventSource(`/api/events/${selectedEvent.id}/seats/stream`);
+    const es = new EventSource(`/api/events/${selectedEvent.id}/seats/stream${dateQuery}`);
     es.onmessage = (ev) => {
       try {
         const msg = JSON.parse(ev.data);
@@ -372,9 +374,9 @@ function App() {
         });
       } catch {}
     };
-    es.onerror = () => { if (!cancelled) es.close(); };
-    return () => { cancelled = true; es.close(); };
-  }, [selectedEvent?.id]);
+    // EventSource reconnects on its own and resumes from the last event id it saw
+    return () => es.close();
+  }, [selectedEvent?.id, dateQuery]);
 
   const total = useMemo(() => { if (!selectedEvent) return 0; return selectedSeatIds.length * selectedEvent.seatPrice; }, [selectedSeatIds, selectedEvent]);
   
@@ -532,8 +534,11 @@ function App() {
         }))
       };
 
-      const resp = await apiPost<any, CreateBookingResponse>('/api/bookings', request);
-      await launchRazorpay(resp);
+      const resp = await apiPostQueued<any, CreateBookingResponse>('/api/bookings', request,
+        (status) => setToast(status.position > 0
+          ? `High demand - you are number ${status.position} in line, please wait`
+          : 'High demand - booking you in shortly'));
+      await launchRazorpay(await awaitPaymentOrder(resp));
     } catch (e: any) { 
       if (e?.code === 'VALIDATION_ERROR' && e?.details) {
         const first = Object.values(e.details as any)[0] as string;
@@ -546,6 +551,17 @@ function App() {
     }
   }
 
+  // Payment orders are created after the seats are held; poll until the order exists
+  async function awaitPaymentOrder(data: CreateBookingResponse): Promise<CreateBookingResponse> {
+    let current = data;
+    for (let i = 0; !current.orderId && current.status === 'HELD' && i < 60; i++) {
+      await new Promise((resolve) => setTimeout(resolve, 500));
+      current = await apiGet<CreateBookingResponse>(`/api/bookings/${data.bookingId}/order`);
+    }
+    if (!current.orderId) throw new Error('Could not create the payment order, please try again');
+    return current;
+  }
+
   async function launchRazorpay(data: CreateBookingResponse) {
     // Dev-mode bypass: if Razorpay SDK not available, auto-verify
     const devMode = !(window as any).Razorpay;
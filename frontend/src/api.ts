@@ -36,6 +36,43 @@ export async function apiPost<TReq, TRes>(path: string, body: TReq): Promise<TRe
 	return res.json() as Promise<TRes>;
 }
 
+export type QueueStatus = { token: string; position: number; etaSeconds: number; admitted: boolean };
+
+const sleep = (ms: number) => new Promise((resolve) => setTimeout(resolve, ms));
+
+const retryAfterMs = (res: Response) => {
+	const seconds = Number(res.headers.get('Retry-After'));
+	return Number.isFinite(seconds) && seconds > 0 ? seconds * 1000 : 1000;
+}
+
+// Like apiPost, but a 429 carrying a queue ticket waits for admission and resends with the ticket
+export async function apiPostQueued<TReq, TRes>(path: string, body: TReq, onWait?: (status: QueueStatus) => void): Promise<TRes> {
+	const url = `${API_BASE}${path}` || path;
+	let token: string | undefined;
+	for (;;) {
+		const res = await fetch(url, {
+			method: 'POST',
+			headers: { 'Content-Type': 'application/json', ...authHeaders(), ...(token ? { 'X-Queue-Token': token } : {}) },
+			body: JSON.stringify(body)
+		});
+		if (res.status !== 429) {
+			if (!res.ok) { await parseError(res, path); }
+			return res.json() as Promise<TRes>;
+		}
+		let status = await res.json() as QueueStatus;
+		onWait?.(status);
+		await sleep(retryAfterMs(res));
+		while (!status.admitted) {
+			status = await apiGet<QueueStatus>(`/api/bookings/queue/${encodeURIComponent(status.token)}`);
+			if (status.admitted) break;
+			onWait?.(status);
+			// Keep polling well inside the ticket's expiry
+			await sleep(Math.min(Math.max(status.etaSeconds, 1), 5) * 1000);
+		}
+		token = status.token;
+	}
+}
+
 export async function apiPut<TReq, TRes>(path: string, body: TReq): Promise<TRes> {
     const url = `${API_BASE}${path}` || path;
     const res = await fetch(url, {
@@ -38,7 +38,7 @@ export default function History() {
               <Stack>
                 <Typography fontWeight={600}>{b.trainNumber ? `${b.trainNumber} — ${b.trainName}` : b.trainName}</Typography>
                 <Typography variant="body2" color="text.secondary">{b.source} → {b.destination} • ₹{b.totalAmount.toFixed(2)} • {b.status} • {new Date(b.createdAt).toLocaleString()}</Typography>
-                {b.status === 'PENDING_PAYMENT' && (
+                {['HELD', 'ORDER_CREATED', 'PENDING_PAYMENT'].includes(b.status) && (
                   <Button size="small" variant="contained" sx={{ mt: 1, alignSelf: 'flex-start' }} onClick={async () => {
                     try {
                       const data: any = await apiPost(`/api/payments/retry/${b.bookingId}`, undefined as any);
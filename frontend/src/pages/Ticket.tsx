@@ -5,7 +5,7 @@ import { apiGet, apiPost } from '../api';
 
 interface TicketDto {
   bookingId: number;
-  status: 'PENDING_PAYMENT' | 'CONFIRMED' | 'CANCELLED';
+  status: 'HELD' | 'ORDER_CREATED' | 'PENDING_PAYMENT' | 'CONFIRMED' | 'CANCELLED' | 'EXPIRED';
   trainName: string;
   trainNumber?: string;
   source?: string;
@@ -16,6 +16,10 @@ interface TicketDto {
   pnrNumber?: string;
 }
 
+function awaitingPayment(status: TicketDto['status']) {
+  return status === 'HELD' || status === 'ORDER_CREATED' || status === 'PENDING_PAYMENT';
+}
+
 export default function Ticket() {
   const { id } = useParams();
   const [ticket, setTicket] = useState<TicketDto | null>(null);
@@ -39,7 +43,7 @@ export default function Ticket() {
   if (!ticket) return null;
 
   async function handleRetryPayment() {
-    if (!ticket || ticket.status !== 'PENDING_PAYMENT') return;
+    if (!ticket || !awaitingPayment(ticket.status)) return;
     setRetrying(true);
     try {
       const data = await apiPost<undefined, any>(`/api/payments/retry/${ticket.bookingId}`, undefined as any);
@@ -126,7 +130,7 @@ export default function Ticket() {
         <CardContent>
           <Stack direction="row" justifyContent="space-between" alignItems="center">
             <Typography variant="h6" fontWeight={700}>E-Ticket</Typography>
-            <Chip label={ticket.status} color={ticket.status === 'CONFIRMED' ? 'success' : ticket.status === 'PENDING_PAYMENT' ? 'warning' : 'default'} />
+            <Chip label={ticket.status} color={ticket.status === 'CONFIRMED' ? 'success' : awaitingPayment(ticket.status) ? 'warning' : 'default'} />
           </Stack>
           <Divider sx={{ my: 1 }} />
           <Stack direction={{ xs: 'column', sm: 'row' }} spacing={2} justifyContent="space-between" alignItems={{ xs: 'flex-start', sm: 'center' }}>
@@ -145,7 +149,7 @@ export default function Ticket() {
             <Typography variant="body2" fontWeight={700}>Total Paid: ₹{ticket.totalAmount.toFixed(2)}</Typography>
           </Stack>
           <Stack direction="row" justifyContent="flex-end" sx={{ mt: 1 }}>
-            {ticket.status === 'PENDING_PAYMENT' && (
+            {awaitingPayment(ticket.status) && (
               <Button variant="contained" color="warning" onClick={handleRetryPayment} disabled={retrying} sx={{ mr: 1 }}>
                 {retrying ? 'Retrying...' : 'Retry Payment'}
               </Button>
@@ -0,0 +1,29 @@
+package com.example.ticketbooking.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+@Configuration
+public class AsyncConfig {
+
+	// Payment gateway calls mostly wait on the network, so each gets its own virtual thread
+	@Bean(destroyMethod = "close")
+	public ExecutorService paymentOrderExecutor() {
+		return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("payment-order-", 0).factory());
+	}
+
+	// SSE writers block on slow browsers; virtual threads keep that off the dispatcher and the request threads
+	@Bean(destroyMethod = "close")
+	public ExecutorService seatUpdateExecutor() {
+		return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("seat-update-", 0).factory());
+	}
+
+	// PNR blocks are reserved here, ahead of need, so a confirming transaction never waits on a second connection
+	@Bean(destroyMethod = "close")
+	public ExecutorService pnrBlockExecutor() {
+		return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("pnr-block-", 0).factory());
+	}
+}
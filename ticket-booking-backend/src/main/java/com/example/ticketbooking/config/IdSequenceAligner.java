@@ -0,0 +1,67 @@
+package com.example.ticketbooking.config;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.ResultSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Moves the id sequences of batch-inserted tables past the rows that were
+ * created while those tables still used auto-increment ids. Runs before the
+ * seeders. On MySQL the sequences are emulated with one-row tables.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class IdSequenceAligner {
+
+	private static final int ALLOCATION_SIZE = 50;
+	private static final Map<String, String> SEQUENCE_TABLES = new LinkedHashMap<>();
+
+	static {
+		SEQUENCE_TABLES.put("seats_seq", "seats");
+		SEQUENCE_TABLES.put("bookings_seq", "bookings");
+		SEQUENCE_TABLES.put("booking_passengers_seq", "booking_passengers");
+	}
+
+	private final JdbcTemplate jdbcTemplate;
+
+	@EventListener(ContextRefreshedEvent.class)
+	public void align() {
+		SEQUENCE_TABLES.forEach((sequence, table) -> {
+			Long maxId = jdbcTemplate.queryForObject("select coalesce(max(id), 0) from " + table, Long.class);
+			// The pooled optimizer hands out the block just below the value it reads
+			long next = (maxId == null ? 0 : maxId) + ALLOCATION_SIZE + 1;
+			if (isTable(sequence)) {
+				if (jdbcTemplate.update("update " + sequence + " set next_val = ? where next_val < ?", next, next) > 0) {
+					log.info("Moved {} to {}", sequence, next);
+				}
+			} else {
+				Long current = jdbcTemplate.queryForObject("select next value for " + sequence, Long.class);
+				if (current != null && current < next) {
+					jdbcTemplate.execute("alter sequence " + sequence + " restart with " + next);
+					log.info("Moved {} to {}", sequence, next);
+				}
+			}
+		});
+	}
+
+	private boolean isTable(String name) {
+		return Boolean.TRUE.equals(jdbcTemplate.execute((ConnectionCallback<Boolean>) con -> {
+			for (String candidate : List.of(name, name.toUpperCase())) {
+				try (ResultSet rs = con.getMetaData().getTables(con.getCatalog(), null, candidate, new String[]{"TABLE"})) {
+					if (rs.next()) return true;
+				}
+			}
+			return false;
+		}));
+	}
+}
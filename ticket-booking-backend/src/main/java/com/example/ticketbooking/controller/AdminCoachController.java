@@ -6,6 +6,7 @@ import com.example.ticketbooking.model.Seat;
 import com.example.ticketbooking.repository.CoachRepository;
 import com.example.ticketbooking.repository.EventRepository;
 import com.example.ticketbooking.repository.SeatRepository;
+import com.example.ticketbooking.service.SeatInventoryService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
@@ -23,6 +24,7 @@ public class AdminCoachController {
 	private final EventRepository eventRepository;
 	private final CoachRepository coachRepository;
 	private final SeatRepository seatRepository;
+	private final SeatInventoryService seatInventoryService;
 
 	@PostMapping("/reset/{eventId}")
 	@PreAuthorize("hasRole('ADMIN')")
@@ -49,6 +51,7 @@ public class AdminCoachController {
 				seatRepository.save(seat);
 			}
 		}
+		seatInventoryService.invalidateAfterCommit(eventId);
 		return ResponseEntity.ok().build();
 	}
 }
\ No newline at end of file
@@ -2,6 +2,9 @@ package com.example.ticketbooking.controller;
 
 import com.example.ticketbooking.model.Event;
 import com.example.ticketbooking.repository.EventRepository;
+import com.example.ticketbooking.service.JourneyPlanner;
+import com.example.ticketbooking.service.RouteIndex;
+import com.example.ticketbooking.service.TrainSearchIndex;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
@@ -18,6 +21,9 @@ import java.util.Optional;
 public class AdminController {
 
     private final EventRepository eventRepository;
+    private final TrainSearchIndex trainSearchIndex;
+    private final RouteIndex routeIndex;
+    private final JourneyPlanner journeyPlanner;
 
     @GetMapping("/trains")
     @PreAuthorize("hasRole('ADMIN')")
@@ -29,7 +35,9 @@ public class AdminController {
     @PreAuthorize("hasRole('ADMIN')")
     public Event addTrain(@Valid @RequestBody Event event) {
         event.setId(null);
-        return eventRepository.save(event);
+        Event saved = eventRepository.save(event);
+        trainSearchIndex.upsert(saved);
+        return saved;
     }
 
     @PutMapping("/trains/{id}")
@@ -48,7 +56,9 @@ public class AdminController {
         e.setEndTime(payload.getEndTime());
         e.setSeatPrice(payload.getSeatPrice());
         e.setClassType(payload.getClassType());
-        return ResponseEntity.ok(eventRepository.save(e));
+        Event saved = eventRepository.save(e);
+        trainSearchIndex.upsert(saved);
+        return ResponseEntity.ok(saved);
     }
 
     @DeleteMapping("/trains/{id}")
@@ -56,6 +66,9 @@ public class AdminController {
     public ResponseEntity<?> deleteTrain(@PathVariable Long id) {
         if (!eventRepository.existsById(id)) return ResponseEntity.notFound().build();
         eventRepository.deleteById(id);
+        trainSearchIndex.remove(id);
+        routeIndex.remove(id);
+        journeyPlanner.markStale();
         return ResponseEntity.noContent().build();
     }
 }
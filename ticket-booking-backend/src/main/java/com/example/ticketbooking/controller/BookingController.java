@@ -5,14 +5,20 @@ import com.example.ticketbooking.model.Booking;
 import com.example.ticketbooking.model.PNR;
 import com.example.ticketbooking.repository.BookingRepository;
 import com.example.ticketbooking.repository.PNRRepository;
+import com.example.ticketbooking.service.BookingAdmissionService;
 import com.example.ticketbooking.service.BookingService;
+import com.example.ticketbooking.service.IdempotencyService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.stream.Collectors;
 import jakarta.validation.Valid;
 
@@ -25,22 +31,58 @@ public class BookingController {
 	private final BookingService bookingService;
 	private final BookingRepository bookingRepository;
 	private final PNRRepository pnrRepository;
+	private final BookingAdmissionService admissionService;
+	private final IdempotencyService idempotencyService;
 
 	@PostMapping
-	public ResponseEntity<BookingDtos.CreateBookingResponse> createBooking(@Valid @RequestBody BookingDtos.CreateBookingRequest request) {
+	public ResponseEntity<?> createBooking(@Valid @RequestBody BookingDtos.CreateBookingRequest request,
+			@RequestHeader(value = "X-Queue-Token", required = false) String queueToken,
+			@RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
+		// A retried request gets the first answer back instead of a second hold
+		return idempotencyService.execute("create-booking", idempotencyKey, request, () -> admitAndCreate(request, queueToken));
+	}
+
+	private ResponseEntity<?> admitAndCreate(BookingDtos.CreateBookingRequest request, String queueToken) {
+		// Callers that are not let in yet get their place in line and retry with the token
+		Optional<BookingAdmissionService.QueueStatus> waiting = admissionService.tryEnter(queueToken);
+		if (waiting.isPresent()) {
+			return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+					.header(HttpHeaders.RETRY_AFTER, String.valueOf(Math.max(1, waiting.get().etaSeconds())))
+					.body(waiting.get());
+		}
 		try {
 			BookingDtos.CreateBookingResponse response = bookingService.createBooking(request);
 			return ResponseEntity.ok(response);
+		} catch (OptimisticLockingFailureException e) {
+			// Lost every optimistic retry; answered 409 by GlobalExceptionHandler and not kept for replay
+			throw e;
 		} catch (Exception e) {
 			return ResponseEntity.badRequest().build();
+		} finally {
+			admissionService.exit();
 		}
 	}
 
+	@PostMapping("/queue")
+	public BookingAdmissionService.QueueStatus joinQueue() {
+		return admissionService.join();
+	}
+
+	@GetMapping("/queue/{token}")
+	public BookingAdmissionService.QueueStatus queueStatus(@PathVariable String token) {
+		return admissionService.status(token);
+	}
+
 	@PostMapping("/verify")
-	public ResponseEntity<Map<String, Object>> verifyPayment(@Valid @RequestBody BookingDtos.VerifyPaymentRequest request) {
+	public ResponseEntity<?> verifyPayment(@Valid @RequestBody BookingDtos.VerifyPaymentRequest request,
+			@RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
+		return idempotencyService.execute("verify-payment", idempotencyKey, request, () -> verify(request));
+	}
+
+	private ResponseEntity<?> verify(BookingDtos.VerifyPaymentRequest request) {
 		try {
 			Booking booking = bookingService.confirmPayment(request);
-			PNR pnr = pnrRepository.findByBooking_Id(booking.getId()).orElse(null);
+			PNR pnr = booking.getPnrs().stream().findFirst().orElse(null);
 			Map<String, Object> response = new HashMap<>();
 			response.put("status", "PAYMENT_VERIFIED");
 			response.put("message", "Payment verified successfully");
@@ -52,6 +94,14 @@ public class BookingController {
 		}
 	}
 
+	// Polled by clients until the payment order of a new booking exists
+	@GetMapping("/{bookingId}/order")
+	public ResponseEntity<BookingDtos.CreateBookingResponse> getOrder(@PathVariable Long bookingId) {
+		return bookingRepository.findById(bookingId)
+				.map(b -> ResponseEntity.ok(bookingService.toOrderResponse(b)))
+				.orElse(ResponseEntity.notFound().build());
+	}
+
 	@GetMapping("/{bookingId}")
 	public ResponseEntity<Map<String, Object>> getBooking(@PathVariable Long bookingId) {
 		return bookingRepository.findByIdWithEventAndSeats(bookingId)
@@ -8,11 +8,16 @@ import com.example.ticketbooking.model.Coach;
 import com.example.ticketbooking.repository.EventRepository;
 import com.example.ticketbooking.repository.SeatRepository;
 import com.example.ticketbooking.repository.CoachRepository;
+import com.example.ticketbooking.service.SeatInventory;
+import com.example.ticketbooking.service.SeatInventoryService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.LocalDate;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 @RestController
@@ -24,6 +29,7 @@ public class EventController {
     private final EventRepository eventRepository;
     private final SeatRepository seatRepository;
     private final CoachRepository coachRepository;
+    private final SeatInventoryService seatInventoryService;
 
     @GetMapping
     public List<EventDtos.EventResponse> list(@RequestParam(value = "q", required = false) String q,
@@ -46,21 +52,31 @@ public class EventController {
     }
 
     @GetMapping("/{eventId}/seats")
-    public ResponseEntity<List<Seat>> seats(@PathVariable Long eventId) {
+    public ResponseEntity<List<EventDtos.SeatResponse>> seats(@PathVariable Long eventId,
+                                                              @RequestParam(value = "journeyDate", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate journeyDate,
+                                                              @RequestParam(value = "fromStation", required = false) String fromStation,
+                                                              @RequestParam(value = "toStation", required = false) String toStation) {
         return eventRepository.findById(eventId)
-                .map(e -> ResponseEntity.ok(seatRepository.findByEvent_Id(eventId)))
+                .map(e -> ResponseEntity.ok(toSeatDtos(eventId, journeyDate, fromStation, toStation, seatRepository.findByEvent_Id(eventId))))
                 .orElse(ResponseEntity.notFound().build());
     }
 
     @GetMapping("/{eventId}/coaches")
-    public ResponseEntity<List<CoachDtos.CoachResponse>> listCoaches(@PathVariable Long eventId) {
+    public ResponseEntity<List<CoachDtos.CoachResponse>> listCoaches(@PathVariable Long eventId,
+                                                                     @RequestParam(value = "journeyDate", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate journeyDate,
+                                                                     @RequestParam(value = "fromStation", required = false) String fromStation,
+                                                                     @RequestParam(value = "toStation", required = false) String toStation) {
         return eventRepository.findById(eventId)
                 .map(e -> {
+                    Map<Long, SeatInventoryService.CoachAvailability> counts = seatInventoryService.coachAvailability(eventId, journeyDate, seatInventoryService.legs(eventId, fromStation, toStation)).stream()
+                            .filter(a -> a.coachId() != null)
+                            .collect(Collectors.toMap(SeatInventoryService.CoachAvailability::coachId, a -> a));
                     List<Coach> coaches = coachRepository.findByEvent_IdOrderByPositionAscIdAsc(eventId);
                     List<CoachDtos.CoachResponse> resp = coaches.stream().map(c -> {
-                        long available = seatRepository.countByCoach_IdAndStatus(c.getId(), Seat.Status.AVAILABLE);
-                        long reserved = seatRepository.countByCoach_IdAndStatus(c.getId(), Seat.Status.RESERVED);
-                        long booked = seatRepository.countByCoach_IdAndStatus(c.getId(), Seat.Status.BOOKED);
+                        SeatInventoryService.CoachAvailability a = counts.get(c.getId());
+                        long available = a == null ? 0 : a.available();
+                        long reserved = a == null ? 0 : a.reserved();
+                        long booked = a == null ? 0 : a.booked();
                         long total = available + reserved + booked;
                         return CoachDtos.CoachResponse.builder()
                                 .id(c.getId())
@@ -78,12 +94,16 @@ public class EventController {
     }
 
     @GetMapping("/{eventId}/availability")
-    public ResponseEntity<?> availability(@PathVariable Long eventId) {
+    public ResponseEntity<?> availability(@PathVariable Long eventId,
+                                          @RequestParam(value = "journeyDate", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate journeyDate,
+                                          @RequestParam(value = "fromStation", required = false) String fromStation,
+                                          @RequestParam(value = "toStation", required = false) String toStation) {
         return eventRepository.findById(eventId)
                 .map(e -> {
-                    long available = seatRepository.findByEvent_Id(eventId).stream().filter(s -> s.getStatus() == Seat.Status.AVAILABLE).count();
-                    long reserved = seatRepository.findByEvent_Id(eventId).stream().filter(s -> s.getStatus() == Seat.Status.RESERVED).count();
-                    long booked = seatRepository.findByEvent_Id(eventId).stream().filter(s -> s.getStatus() == Seat.Status.BOOKED).count();
+                    List<SeatInventoryService.CoachAvailability> coaches = seatInventoryService.coachAvailability(eventId, journeyDate, seatInventoryService.legs(eventId, fromStation, toStation));
+                    long available = coaches.stream().mapToLong(SeatInventoryService.CoachAvailability::available).sum();
+                    long reserved = coaches.stream().mapToLong(SeatInventoryService.CoachAvailability::reserved).sum();
+                    long booked = coaches.stream().mapToLong(SeatInventoryService.CoachAvailability::booked).sum();
                     return ResponseEntity.ok(java.util.Map.of(
                             "available", available,
                             "reserved", reserved,
@@ -95,12 +115,27 @@ public class EventController {
     }
 
     @GetMapping("/coaches/{coachId}/seats")
-    public ResponseEntity<List<Seat>> seatsByCoach(@PathVariable Long coachId) {
+    public ResponseEntity<List<EventDtos.SeatResponse>> seatsByCoach(@PathVariable Long coachId,
+                                                                     @RequestParam(value = "journeyDate", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate journeyDate,
+                                                                     @RequestParam(value = "fromStation", required = false) String fromStation,
+                                                                     @RequestParam(value = "toStation", required = false) String toStation) {
         return coachRepository.findById(coachId)
-                .map(c -> ResponseEntity.ok(seatRepository.findByCoach_Id(coachId)))
+                .map(c -> ResponseEntity.ok(toSeatDtos(c.getEvent().getId(), journeyDate, fromStation, toStation, seatRepository.findByCoach_Id(coachId))))
                 .orElse(ResponseEntity.notFound().build());
     }
 
+    // Seat rows carry the rake only; the status comes from the inventory of the journey date and segment
+    private List<EventDtos.SeatResponse> toSeatDtos(Long eventId, LocalDate journeyDate, String fromStation, String toStation, List<Seat> seats) {
+        SeatInventory inventory = seatInventoryService.inventory(eventId, journeyDate);
+        long legs = seatInventoryService.legs(eventId, fromStation, toStation);
+        return seats.stream().map(s -> EventDtos.SeatResponse.builder()
+                .id(s.getId())
+                .rowLabel(s.getRowLabel())
+                .seatNumber(s.getSeatNumber())
+                .status(inventory.statusOf(s.getId(), legs))
+                .build()).collect(Collectors.toList());
+    }
+
     private EventDtos.EventResponse toDto(Event e) {
         return EventDtos.EventResponse.builder()
                 .id(e.getId())
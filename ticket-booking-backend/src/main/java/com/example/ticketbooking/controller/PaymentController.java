@@ -3,7 +3,9 @@ package com.example.ticketbooking.controller;
 import com.example.ticketbooking.model.Booking;
 import com.example.ticketbooking.repository.BookingRepository;
 import com.example.ticketbooking.service.PaymentService;
+import com.example.ticketbooking.service.PaymentWebhookInbox;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
@@ -11,6 +13,7 @@ import org.springframework.security.core.userdetails.User;
 import org.springframework.web.bind.annotation.*;
 
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 import java.util.Map;
 
 @RestController
@@ -21,19 +24,27 @@ public class PaymentController {
 
 	private final BookingRepository bookingRepository;
 	private final PaymentService paymentService;
+	private final PaymentWebhookInbox paymentWebhookInbox;
 
 	@PostMapping("/retry/{bookingId}")
 	@PreAuthorize("isAuthenticated()")
 	public ResponseEntity<?> retry(@AuthenticationPrincipal User principal, @PathVariable Long bookingId) {
 		return bookingRepository.findById(bookingId)
 				.map(b -> {
+					if (!b.getStatus().isAwaitingPayment()) {
+						return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("error", "BOOKING_NOT_PAYABLE", "message", "Booking is " + b.getStatus()));
+					}
 					try {
 						long amountInPaise = b.getTotalAmount().multiply(BigDecimal.valueOf(100)).longValue();
 						var order = paymentService.createOrder(amountInPaise, "booking-" + b.getId());
-						b.setPaymentOrderId(order.get("id"));
-						bookingRepository.save(b);
+						String orderId = order.get("id");
+						Booking.Status to = b.getStatus() == Booking.Status.HELD ? Booking.Status.ORDER_CREATED : b.getStatus();
+						// Guarded on the status read above, so a booking confirmed or expired meanwhile is left alone
+						if (bookingRepository.attachOrder(b.getId(), orderId, b.getStatus(), to) == 0) {
+							return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("error", "BOOKING_NOT_PAYABLE", "message", "Booking changed while the order was created"));
+						}
 						return ResponseEntity.ok(Map.of(
-								"orderId", b.getPaymentOrderId(),
+								"orderId", orderId,
 								"amount", b.getTotalAmount(),
 								"currency", "INR",
 								"razorpayKeyId", paymentService.getKeyId()
@@ -45,35 +56,20 @@ public class PaymentController {
 				.orElse(ResponseEntity.notFound().build());
 	}
 
+	// Verified and stored, then confirmed by the inbox worker; retries of a known payment are acknowledged as duplicates
 	@PostMapping("/webhook/razorpay")
-	public ResponseEntity<?> webhook(@RequestBody Map<String, Object> payload, @RequestHeader Map<String, String> headers) {
+	public ResponseEntity<?> webhook(@RequestBody byte[] body,
+			@RequestHeader(value = "X-Razorpay-Signature", required = false) String signature) {
 		try {
-			String signature = headers.getOrDefault("x-razorpay-signature", headers.getOrDefault("X-Razorpay-Signature", ""));
-			String body = new org.json.JSONObject(payload).toString();
-			boolean ok = paymentService.verifyWebhookSignature(body, signature);
-			if (!ok) {
+			if (!paymentService.verifyWebhookSignature(body, signature)) {
 				return ResponseEntity.status(401).body(Map.of("error", "INVALID_SIGNATURE"));
 			}
-			Map<String, Object> payloadData = (Map<String, Object>) payload.get("payload");
-			if (payloadData == null) return ResponseEntity.badRequest().body(Map.of("error", "INVALID_PAYLOAD"));
-			Map<String, Object> paymentEntity = (Map<String, Object>) payloadData.get("payment");
-			if (paymentEntity == null) return ResponseEntity.badRequest().body(Map.of("error", "INVALID_PAYLOAD"));
-			Map<String, Object> payment = (Map<String, Object>) paymentEntity.get("entity");
-			if (payment == null) return ResponseEntity.badRequest().body(Map.of("error", "INVALID_PAYLOAD"));
-			String orderId = (String) payment.get("order_id");
-			String paymentId = (String) payment.get("id");
-			if (orderId == null || paymentId == null) return ResponseEntity.badRequest().body(Map.of("error", "MISSING_IDS"));
-
-			return bookingRepository.findByPaymentOrderId(orderId)
-					.map(b -> {
-						b.setRazorpayPaymentId(paymentId);
-						b.setStatus(com.example.ticketbooking.model.Booking.Status.CONFIRMED);
-						bookingRepository.save(b);
-						return ResponseEntity.ok(Map.of("status", "BOOKING_CONFIRMED", "bookingId", b.getId()));
-					})
-					.orElse(ResponseEntity.notFound().build());
+			boolean stored = paymentWebhookInbox.accept(new String(body, StandardCharsets.UTF_8));
+			return ResponseEntity.ok(Map.of("status", stored ? "ACCEPTED" : "DUPLICATE"));
+		} catch (IllegalArgumentException e) {
+			return ResponseEntity.badRequest().body(Map.of("error", "INVALID_PAYLOAD", "message", e.getMessage()));
 		} catch (Exception e) {
 			return ResponseEntity.internalServerError().body(Map.of("error", e.getMessage()));
 		}
 	}
-}
\ No newline at end of file
+}
@@ -1,13 +1,18 @@
 package com.example.ticketbooking.controller;
 
 import com.example.ticketbooking.service.SeatUpdateBroadcaster;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.time.LocalDate;
+
 @RestController
 @RequestMapping("/api/events")
 @CrossOrigin(origins = "*")
@@ -20,7 +25,11 @@ public class RealtimeController {
 	}
 
 	@GetMapping("/{eventId}/seats/stream")
-	public SseEmitter seatsStream(@PathVariable Long eventId) {
-		return broadcaster.subscribe(eventId);
+	public SseEmitter seatsStream(@PathVariable Long eventId,
+			@RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate journeyDate,
+			@RequestParam(required = false) String fromStation,
+			@RequestParam(required = false) String toStation,
+			@RequestHeader(value = "Last-Event-ID", required = false) String lastEventId) {
+		return broadcaster.subscribe(eventId, journeyDate, fromStation, toStation, lastEventId);
 	}
 }
\ No newline at end of file
@@ -2,6 +2,8 @@ package com.example.ticketbooking.controller;
 
 import com.example.ticketbooking.model.Station;
 import com.example.ticketbooking.repository.StationRepository;
+import com.example.ticketbooking.service.StationLocator;
+import com.example.ticketbooking.service.StationSearchIndex;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -15,13 +17,26 @@ import java.util.List;
 public class StationController {
 
     private final StationRepository stationRepository;
+    private final StationSearchIndex stationSearchIndex;
+    private final StationLocator stationLocator;
 
     @GetMapping
     public List<Station> searchStations(@RequestParam(value = "q", required = false) String query) {
         if (query == null || query.trim().isEmpty()) {
             return stationRepository.findAll();
         }
-        return stationRepository.searchStations(query.trim());
+        return stationSearchIndex.search(query);
+    }
+
+    @GetMapping("/nearby")
+    public ResponseEntity<List<StationLocator.Nearby>> getNearbyStations(@RequestParam double lat,
+                                                                         @RequestParam double lon,
+                                                                         @RequestParam(value = "k", defaultValue = "5") int k,
+                                                                         @RequestParam(value = "radiusKm", required = false) Double radiusKm) {
+        if (lat < -90 || lat > 90 || lon < -180 || lon > 180 || k < 1 || (radiusKm != null && radiusKm < 0)) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(stationLocator.nearest(lat, lon, Math.min(k, 100), radiusKm));
     }
 
     @GetMapping("/{id}")
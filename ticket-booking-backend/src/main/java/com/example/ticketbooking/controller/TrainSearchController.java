@@ -2,8 +2,13 @@ package com.example.ticketbooking.controller;
 
 import com.example.ticketbooking.dto.EventDtos;
 import com.example.ticketbooking.dto.CoachDtos;
+import com.example.ticketbooking.dto.JourneyDtos;
 import com.example.ticketbooking.model.*;
 import com.example.ticketbooking.repository.*;
+import com.example.ticketbooking.service.JourneyPlanner;
+import com.example.ticketbooking.service.RouteIndex;
+import com.example.ticketbooking.service.SeatInventoryService;
+import com.example.ticketbooking.service.TrainSearchIndex;
 import lombok.RequiredArgsConstructor;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
@@ -11,6 +16,7 @@ import org.springframework.web.bind.annotation.*;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.time.LocalTime;
 import java.util.*;
 import java.util.stream.Collectors;
 
@@ -20,12 +26,17 @@ import java.util.stream.Collectors;
 @CrossOrigin(origins = "*")
 public class TrainSearchController {
 
+	private static final int MAX_BATCH_EVENTS = 100;
+
 	private final EventRepository eventRepository;
 	private final StationRepository stationRepository;
-	private final SeatRepository seatRepository;
 	private final CoachRepository coachRepository;
 	private final FareRepository fareRepository;
 	private final WaitlistRepository waitlistRepository;
+	private final SeatInventoryService seatInventoryService;
+	private final TrainSearchIndex trainSearchIndex;
+	private final RouteIndex routeIndex;
+	private final JourneyPlanner journeyPlanner;
 
 	@GetMapping("/advanced")
 	public List<EventDtos.EventResponse> advancedSearch(
@@ -42,90 +53,56 @@ public class TrainSearchController {
 			@RequestParam(value = "sortBy", defaultValue = "startTime") String sortBy,
 			@RequestParam(value = "sortOrder", defaultValue = "asc") String sortOrder) {
 
-		List<Event> events = eventRepository.findAll();
+		List<EventDtos.EventResponse> events = new ArrayList<>(trainSearchIndex.search(new TrainSearchIndex.Query(source, destination, date,
+				trainType, trainCategory, hasAC, trainOperator, minSpeed, maxFare, classType)));
 
-		if (source != null && !source.trim().isEmpty()) {
-			events = events.stream()
-					.filter(e -> e.getSource() != null && e.getSource().toLowerCase().contains(source.toLowerCase()))
-					.collect(Collectors.toList());
-		}
-		if (destination != null && !destination.trim().isEmpty()) {
-			events = events.stream()
-					.filter(e -> e.getDestination() != null && e.getDestination().toLowerCase().contains(destination.toLowerCase()))
-					.collect(Collectors.toList());
-		}
-		if (date != null) {
-			events = events.stream()
-					.filter(e -> e.getStartTime() != null && e.getStartTime().toLocalDate().equals(date))
-					.collect(Collectors.toList());
-		}
-		if (trainType != null && !trainType.trim().isEmpty()) {
-			events = events.stream()
-					.filter(e -> e.getTrainType() != null && e.getTrainType().equalsIgnoreCase(trainType))
-					.collect(Collectors.toList());
-		}
-		if (trainCategory != null && !trainCategory.trim().isEmpty()) {
-			events = events.stream()
-					.filter(e -> e.getTrainCategory() != null && e.getTrainCategory().equalsIgnoreCase(trainCategory))
-					.collect(Collectors.toList());
-		}
-		if (hasAC != null) {
-			events = events.stream()
-					.filter(e -> e.getHasAC() != null && e.getHasAC().equals(hasAC))
-					.collect(Collectors.toList());
-		}
-		if (trainOperator != null && !trainOperator.trim().isEmpty()) {
-			events = events.stream()
-					.filter(e -> e.getTrainOperator() != null && e.getTrainOperator().equalsIgnoreCase(trainOperator))
-					.collect(Collectors.toList());
-		}
-		if (minSpeed != null) {
-			events = events.stream()
-					.filter(e -> e.getAverageSpeed() != null && e.getAverageSpeed() >= minSpeed)
-					.collect(Collectors.toList());
-		}
-		if (maxFare != null) {
-			events = events.stream()
-					.filter(e -> e.getSeatPrice() != null && e.getSeatPrice().doubleValue() <= maxFare)
-					.collect(Collectors.toList());
-		}
-		if (classType != null && !classType.trim().isEmpty()) {
-			events = events.stream()
-					.filter(e -> e.getClassType() != null && e.getClassType().equalsIgnoreCase(classType))
-					.collect(Collectors.toList());
-		}
-
-		Comparator<Event> comparator = Comparator.comparing(Event::getStartTime);
-		if ("fare".equals(sortBy)) comparator = Comparator.comparing(Event::getSeatPrice);
-		if ("duration".equals(sortBy)) comparator = Comparator.comparing(Event::getEndTime);
+		Comparator<EventDtos.EventResponse> comparator = Comparator.comparing(EventDtos.EventResponse::getStartTime);
+		if ("fare".equals(sortBy)) comparator = Comparator.comparing(EventDtos.EventResponse::getSeatPrice);
+		if ("duration".equals(sortBy)) comparator = Comparator.comparing(EventDtos.EventResponse::getEndTime);
 		if ("desc".equalsIgnoreCase(sortOrder)) comparator = comparator.reversed();
 		events.sort(comparator);
+		return events;
+	}
 
-		return events.stream().map(this::toDto).collect(Collectors.toList());
+	// Trains halting at both stations in this order, by departure from the first, wherever on their route the stations are
+	@GetMapping("/between")
+	public List<RouteIndex.Route> trainsBetween(@RequestParam String from, @RequestParam String to) {
+		List<RouteIndex.Route> routes = new ArrayList<>(routeIndex.between(from, to));
+		routes.sort(Comparator.comparing(RouteIndex.Route::departureTime, Comparator.nullsLast(Comparator.naturalOrder())));
+		return routes;
+	}
+
+	// Direct and connecting journeys leaving after the given time, from fewest changes to earliest arrival
+	@GetMapping("/journeys")
+	public List<JourneyDtos.Journey> planJourneys(
+			@RequestParam String from,
+			@RequestParam String to,
+			@RequestParam(value = "date", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date,
+			@RequestParam(value = "time", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.TIME) LocalTime time,
+			@RequestParam(value = "maxTransfers", defaultValue = "2") int maxTransfers) {
+		return journeyPlanner.plan(from, to, date != null ? date : LocalDate.now(), time, maxTransfers);
 	}
 
 	@GetMapping("/seat-availability/{eventId}")
 	public ResponseEntity<Map<String, Object>> getSeatAvailability(
 			@PathVariable Long eventId,
 			@RequestParam String classType,
-			@RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate journeyDate) {
+			@RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate journeyDate,
+			@RequestParam(required = false) String fromStation,
+			@RequestParam(required = false) String toStation) {
 		Event event = eventRepository.findById(eventId).orElse(null);
 		if (event == null) return ResponseEntity.notFound().build();
 
-		List<Coach> coaches = coachRepository.findByEvent_IdOrderByPositionAscIdAsc(eventId).stream()
-				.filter(c -> c.getClassType() != null && c.getClassType().equalsIgnoreCase(classType))
-				.collect(Collectors.toList());
-
+		// A seat counts as free when it is free on every leg between the two stops
+		long legs = seatInventoryService.legs(eventId, fromStation, toStation);
 		int totalSeats = 0;
 		int availableSeats = 0;
 		int bookedSeats = 0;
-		for (Coach coach : coaches) {
-			List<Seat> seats = seatRepository.findByCoach_Id(coach.getId());
-			totalSeats += seats.size();
-			for (Seat seat : seats) {
-				if (seat.getStatus() == Seat.Status.AVAILABLE) availableSeats++;
-				if (seat.getStatus() == Seat.Status.BOOKED) bookedSeats++;
-			}
+		for (SeatInventoryService.CoachAvailability coach : seatInventoryService.coachAvailability(eventId, journeyDate, legs)) {
+			if (coach.classType() == null || !coach.classType().equalsIgnoreCase(classType)) continue;
+			totalSeats += coach.available() + coach.reserved() + coach.booked();
+			availableSeats += coach.available();
+			bookedSeats += coach.booked();
 		}
 
 		int waitlistCount = waitlistRepository.findByEvent_IdAndClassTypeAndJourneyDate(eventId, classType, journeyDate).size();
@@ -134,6 +111,8 @@ public class TrainSearchController {
 		response.put("eventId", eventId);
 		response.put("classType", classType);
 		response.put("journeyDate", journeyDate);
+		response.put("fromStation", fromStation != null ? fromStation : event.getSource());
+		response.put("toStation", toStation != null ? toStation : event.getDestination());
 		response.put("totalSeats", totalSeats);
 		response.put("availableSeats", availableSeats);
 		response.put("bookedSeats", bookedSeats);
@@ -226,27 +205,64 @@ public class TrainSearchController {
 	}
 
 	@GetMapping("/available-classes/{eventId}")
-	public ResponseEntity<List<Map<String, Object>>> getAvailableClasses(@PathVariable Long eventId) {
+	public ResponseEntity<List<Map<String, Object>>> getAvailableClasses(
+			@PathVariable Long eventId,
+			@RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate journeyDate) {
 		List<Coach> coaches = coachRepository.findByEvent_IdOrderByPositionAscIdAsc(eventId);
-		List<Map<String, Object>> classes = new ArrayList<>();
-		Set<String> processed = new HashSet<>();
-		for (Coach coach : coaches) {
-			if (processed.add(coach.getClassType())) {
-				long available = seatRepository.countByCoach_IdAndStatus(coach.getId(), Seat.Status.AVAILABLE);
-				long reserved = seatRepository.countByCoach_IdAndStatus(coach.getId(), Seat.Status.RESERVED);
-				long booked = seatRepository.countByCoach_IdAndStatus(coach.getId(), Seat.Status.BOOKED);
-				long total = available + reserved + booked;
-				classes.add(Map.of(
-						"classType", coach.getClassType(),
-						"available", available,
-						"reserved", reserved,
-						"booked", booked,
-						"total", total,
-						"coachCode", coach.getCode()
-				));
+		if (coaches.isEmpty()) return ResponseEntity.ok(List.of());
+		return ResponseEntity.ok(classAvailability(eventId, journeyDate, coaches));
+	}
+
+	// Class availability of a whole page of search results, keyed by train, from one coach query, one bookings query for dates not loaded yet and the in-memory inventories
+	@GetMapping("/available-classes")
+	public ResponseEntity<Map<Long, List<Map<String, Object>>>> getAvailableClassesBatch(
+			@RequestParam List<Long> eventIds,
+			@RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate journeyDate) {
+		Set<Long> ids = new LinkedHashSet<>(eventIds);
+		if (ids.size() > MAX_BATCH_EVENTS) return ResponseEntity.badRequest().build();
+		Map<Long, List<Coach>> coachesByEvent = coachRepository.findByEvent_IdInOrderByEvent_IdAscPositionAscIdAsc(ids).stream()
+				.collect(Collectors.groupingBy(c -> c.getEvent().getId()));
+		seatInventoryService.preload(coachesByEvent.keySet(), journeyDate);
+		Map<Long, List<Map<String, Object>>> result = new LinkedHashMap<>();
+		for (Long eventId : ids) {
+			List<Coach> coaches = coachesByEvent.get(eventId);
+			if (coaches == null) continue;
+			try {
+				result.put(eventId, classAvailability(eventId, journeyDate, coaches));
+			} catch (IllegalArgumentException e) {
+				// Not sold on that date, e.g. not a running day; the rest of the page is still answered
+				result.put(eventId, List.of());
 			}
 		}
-		return ResponseEntity.ok(classes);
+		return ResponseEntity.ok(result);
+	}
+
+	// Counts of all coaches of a class added up, for the whole route; listed in rake order under the class's first coach
+	private List<Map<String, Object>> classAvailability(Long eventId, LocalDate journeyDate, List<Coach> coaches) {
+		Map<Long, SeatInventoryService.CoachAvailability> counts = seatInventoryService.coachAvailability(eventId, journeyDate, seatInventoryService.layout(eventId).fullMask()).stream()
+				.filter(a -> a.coachId() != null)
+				.collect(Collectors.toMap(SeatInventoryService.CoachAvailability::coachId, a -> a));
+		Map<String, long[]> totals = new LinkedHashMap<>();
+		Map<String, String> coachCodes = new HashMap<>();
+		for (Coach coach : coaches) {
+			long[] sum = totals.computeIfAbsent(coach.getClassType(), k -> new long[3]);
+			coachCodes.putIfAbsent(coach.getClassType(), coach.getCode());
+			SeatInventoryService.CoachAvailability a = counts.get(coach.getId());
+			if (a == null) continue;
+			sum[0] += a.available();
+			sum[1] += a.reserved();
+			sum[2] += a.booked();
+		}
+		List<Map<String, Object>> classes = new ArrayList<>();
+		totals.forEach((classType, sum) -> classes.add(Map.of(
+				"classType", classType,
+				"available", sum[0],
+				"reserved", sum[1],
+				"booked", sum[2],
+				"total", sum[0] + sum[1] + sum[2],
+				"coachCode", coachCodes.get(classType)
+		)));
+		return classes;
 	}
 
 	@GetMapping("/filters")
@@ -271,20 +287,4 @@ public class TrainSearchController {
 				Map.of("source", "Bangalore City", "destination", "Chennai Central", "code", "SBC-MAS")
 		));
 	}
-
-	private EventDtos.EventResponse toDto(Event e) {
-		return EventDtos.EventResponse.builder()
-				.id(e.getId())
-				.name(e.getName())
-				.trainNumber(e.getTrainNumber())
-				.source(e.getSource())
-				.destination(e.getDestination())
-				.venue(e.getVenue())
-				.description(e.getDescription())
-				.startTime(e.getStartTime())
-				.endTime(e.getEndTime())
-				.seatPrice(e.getSeatPrice())
-				.classType(e.getClassType())
-				.build();
-	}
 }
\ No newline at end of file
@@ -15,6 +15,12 @@ public class BookingDtos {
 		@NotNull
 		private Long eventId;
 		private List<Long> seatIds;
+		// Optional preference used when seats are auto-assigned
+		private String classType;
+		private Long coachId;
+		// Optional station codes of the boarding and alighting stops; the whole run when omitted
+		private String fromStation;
+		private String toStation;
 		@NotBlank
 		@Size(min = 2, max = 100)
 		private String customerName;
@@ -36,6 +42,8 @@ public class BookingDtos {
 			@Builder
 		public static class CreateBookingResponse {
 			private Long bookingId;
+			// HELD until the payment order exists; poll GET /api/bookings/{id}/order for orderId
+			private String status;
 			private String orderId;
 			private String razorpayKeyId;
 			private BigDecimal amount;
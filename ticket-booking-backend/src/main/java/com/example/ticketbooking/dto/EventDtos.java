@@ -1,5 +1,6 @@
 package com.example.ticketbooking.dto;
 
+import com.example.ticketbooking.model.Seat;
 import lombok.Builder;
 import lombok.Getter;
 import lombok.Setter;
@@ -25,5 +26,14 @@ public class EventDtos {
         private BigDecimal seatPrice;
         private String classType;
     }
-}
 
+    @Getter
+    @Setter
+    @Builder
+    public static class SeatResponse {
+        private Long id;
+        private String rowLabel;
+        private Integer seatNumber;
+        private Seat.Status status;
+    }
+}
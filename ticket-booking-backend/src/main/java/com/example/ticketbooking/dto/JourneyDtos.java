@@ -0,0 +1,35 @@
+package com.example.ticketbooking.dto;
+
+import lombok.Builder;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public class JourneyDtos {
+
+    @Getter
+    @Setter
+    @Builder
+    public static class Journey {
+        private int transfers;
+        private LocalDateTime departureTime;
+        private LocalDateTime arrivalTime;
+        private long durationMinutes;
+        private List<Leg> legs;
+    }
+
+    @Getter
+    @Setter
+    @Builder
+    public static class Leg {
+        private Long eventId;
+        private String trainNumber;
+        private String trainName;
+        private String fromStation;
+        private String toStation;
+        private LocalDateTime departureTime;
+        private LocalDateTime arrivalTime;
+    }
+}
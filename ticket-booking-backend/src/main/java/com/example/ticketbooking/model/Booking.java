@@ -8,12 +8,14 @@ import java.math.BigDecimal;
 import java.time.OffsetDateTime;
 import java.time.LocalDate;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
 @Entity
 @Table(name = "bookings", indexes = {
     @Index(columnList = "paymentOrderId"),
-    @Index(columnList = "status")
+    @Index(columnList = "status"),
+    @Index(columnList = "event_id, journeyDate")
 })
 @Getter
 @Setter
@@ -22,10 +24,21 @@ import java.util.Set;
 @AllArgsConstructor
 public class Booking {
 
-    public enum Status { PENDING_PAYMENT, CONFIRMED, CANCELED, EXPIRED, WAITLIST }
+    // HELD -> ORDER_CREATED -> CONFIRMED; PENDING_PAYMENT is left over from before orders were created asynchronously
+    public enum Status {
+        PENDING_PAYMENT, CONFIRMED, CANCELED, EXPIRED, WAITLIST, HELD, ORDER_CREATED;
+
+        // Seats are held for these bookings until they are paid for or expire
+        public static final List<Status> AWAITING_PAYMENT = List.of(HELD, ORDER_CREATED, PENDING_PAYMENT);
+
+        public boolean isAwaitingPayment() {
+            return AWAITING_PAYMENT.contains(this);
+        }
+    }
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "bookings_seq")
+    @SequenceGenerator(name = "bookings_seq", sequenceName = "bookings_seq", allocationSize = 50)
     private Long id;
 
     @ManyToOne(fetch = FetchType.LAZY, optional = false)
@@ -77,7 +90,17 @@ public class Booking {
     @Column
     private LocalDate journeyDate;
 
+    // TrainSchedule sequence numbers of the boarding and alighting stops; null means the train's source or destination
+    private Integer fromStop;
+    private Integer toStop;
+
     @OneToMany(mappedBy = "booking", cascade = CascadeType.ALL, orphanRemoval = true)
     @Builder.Default
     private java.util.Set<BookingPassenger> passengers = new java.util.HashSet<>();
+
+    // Holds at most one PNR, issued on confirmation
+    @OneToMany(mappedBy = "booking")
+    @Builder.Default
+    @JsonIgnore
+    private Set<PNR> pnrs = new HashSet<>();
 }
\ No newline at end of file
@@ -13,7 +13,8 @@ import lombok.*;
 public class BookingPassenger {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "booking_passengers_seq")
+    @SequenceGenerator(name = "booking_passengers_seq", sequenceName = "booking_passengers_seq", allocationSize = 50)
     private Long id;
 
     @ManyToOne(fetch = FetchType.LAZY, optional = false)
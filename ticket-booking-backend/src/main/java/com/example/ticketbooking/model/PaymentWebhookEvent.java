@@ -0,0 +1,50 @@
+package com.example.ticketbooking.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.OffsetDateTime;
+
+// A verified gateway webhook, stored before it is acted on; one row per payment
+@Entity
+@Table(name = "payment_webhook_inbox", indexes = { @Index(columnList = "status,id") })
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class PaymentWebhookEvent {
+
+	public enum Status { PENDING, PROCESSED, FAILED }
+
+	@Id
+	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	private Long id;
+
+	@Column(nullable = false, unique = true)
+	private String paymentId;
+
+	@Column(nullable = false)
+	private String orderId;
+
+	private String eventType;
+
+	@Lob
+	@Column(nullable = false)
+	private String payload;
+
+	@Enumerated(EnumType.STRING)
+	@Column(nullable = false)
+	private Status status;
+
+	@Column(nullable = false)
+	private int attempts;
+
+	@Column(length = 1000)
+	private String lastError;
+
+	@Column(nullable = false)
+	private OffsetDateTime receivedAt;
+
+	private OffsetDateTime processedAt;
+}
@@ -0,0 +1,28 @@
+package com.example.ticketbooking.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.OffsetDateTime;
+
+// A range of PNR serials handed to one node; the id is the block number
+@Entity
+@Table(name = "pnr_blocks")
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PnrBlock {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "pnr_block_seq")
+    @SequenceGenerator(name = "pnr_block_seq", sequenceName = "pnr_block_seq", allocationSize = 1)
+    private Long id;
+
+    @Column(nullable = false)
+    private String node;
+
+    @Column(nullable = false)
+    private OffsetDateTime reservedAt;
+}
@@ -6,8 +6,7 @@ import com.fasterxml.jackson.annotation.JsonIgnore;
 
 @Entity
 @Table(name = "seats", indexes = {
-        @Index(columnList = "event_id"),
-        @Index(columnList = "status")
+        @Index(columnList = "event_id")
 })
 @Getter
 @Setter
@@ -19,7 +18,9 @@ public class Seat {
     public enum Status { AVAILABLE, RESERVED, BOOKED }
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    // Pooled ids let Hibernate batch inserts; IdSequenceAligner keeps the sequence ahead of existing rows
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "seats_seq")
+    @SequenceGenerator(name = "seats_seq", sequenceName = "seats_seq", allocationSize = 50)
     private Long id;
 
     @ManyToOne(fetch = FetchType.LAZY, optional = false)
@@ -38,7 +39,15 @@ public class Seat {
     @Column(nullable = false)
     private Integer seatNumber;
 
+    // Not maintained: seat states are per journey date and leg, kept by SeatInventoryService and
+    // rebuilt from bookings. New seats are written as AVAILABLE so existing NOT NULL columns accept them.
     @Enumerated(EnumType.STRING)
     @Column(nullable = false)
-    private Status status;
+    @Builder.Default
+    private Status status = Status.AVAILABLE;
+
+    // Bumped by every optimistic claim; see SeatClaimService
+    @Column(nullable = false, columnDefinition = "bigint default 0")
+    @Builder.Default
+    private Long version = 0L;
 }
\ No newline at end of file
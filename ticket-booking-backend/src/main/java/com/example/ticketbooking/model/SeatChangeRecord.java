@@ -0,0 +1,48 @@
+package com.example.ticketbooking.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+
+// One committed seat state change, read back by the other instances in id order
+@Entity
+@Table(name = "seat_changes")
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SeatChangeRecord {
+
+    // Identity rather than pooled sequences, so ids follow insertion order across instances
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false, length = 64)
+    private String node;
+
+    @Column(nullable = false)
+    private Long eventId;
+
+    private LocalDate journeyDate;
+
+    @Column(nullable = false)
+    private long legs;
+
+    @Enumerated(EnumType.STRING)
+    private Seat.Status fromStatus;
+
+    @Enumerated(EnumType.STRING)
+    private Seat.Status toStatus;
+
+    // Comma-separated seat ids
+    @Lob
+    @Column(nullable = false)
+    private String seatIds;
+
+    @Column(nullable = false)
+    private OffsetDateTime createdAt;
+}
@@ -1,10 +1,12 @@
 package com.example.ticketbooking.model;
 
+import com.example.ticketbooking.service.StationListener;
 import jakarta.persistence.*;
 import lombok.*;
 
 @Entity
 @Table(name = "stations")
+@EntityListeners(StationListener.class)
 @Getter
 @Setter
 @Builder
@@ -1,5 +1,6 @@
 package com.example.ticketbooking.model;
 
+import com.example.ticketbooking.service.TrainScheduleListener;
 import jakarta.persistence.*;
 import lombok.*;
 
@@ -9,6 +10,7 @@ import java.util.Set;
 
 @Entity
 @Table(name = "train_schedules")
+@EntityListeners(TrainScheduleListener.class)
 @Getter
 @Setter
 @Builder
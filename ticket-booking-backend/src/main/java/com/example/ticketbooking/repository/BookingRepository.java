@@ -1,11 +1,20 @@
 package com.example.ticketbooking.repository;
 
 import com.example.ticketbooking.model.Booking;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDate;
 import java.time.OffsetDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -16,8 +25,89 @@ public interface BookingRepository extends JpaRepository<Booking, Long> {
 	@Query("select distinct b from Booking b join fetch b.event left join fetch b.seats where b.id = :id")
 	Optional<Booking> findByIdWithEventAndSeats(@Param("id") Long id);
 
+	// Everything confirmation reads, in one round trip; read-only because the status moves by a guarded update
+	@QueryHints(@QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"))
+	@Query("select distinct b from Booking b join fetch b.event left join fetch b.seats s left join fetch s.coach left join fetch b.pnrs where b.id = :id")
+	Optional<Booking> findForConfirmation(@Param("id") Long id);
+
+	@QueryHints(@QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"))
+	@Query("select distinct b from Booking b join fetch b.event left join fetch b.seats s left join fetch s.coach left join fetch b.pnrs where b.paymentOrderId = :orderId")
+	Optional<Booking> findForConfirmationByPaymentOrderId(@Param("orderId") String orderId);
+
 	@Query("select b from Booking b join fetch b.event where lower(b.customerEmail) = lower(:email) order by b.createdAt desc")
 	List<Booking> findSummariesByCustomerEmailIgnoreCaseOrderByCreatedAtDesc(@Param("email") String email);
 
-	List<Booking> findByStatusAndReservationExpiresAtBefore(Booking.Status status, OffsetDateTime time);
+	@Query("select b.id as id, b.reservationExpiresAt as reservationExpiresAt from Booking b where b.status in :statuses and b.reservationExpiresAt is not null")
+	List<ExpiryView> findExpiries(@Param("statuses") Collection<Booking.Status> statuses);
+
+	@Query("select b.id from Booking b where b.status in :statuses and b.reservationExpiresAt <= :time")
+	List<Long> findIdsDueBefore(@Param("statuses") Collection<Booking.Status> statuses, @Param("time") OffsetDateTime time);
+
+	// Locks the bookings that are still due, so a payment confirmation waits until they are expired
+	@Lock(LockModeType.PESSIMISTIC_WRITE)
+	@Query("select b from Booking b where b.id in :ids and b.status in :statuses and b.reservationExpiresAt <= :time")
+	List<Booking> lockDue(@Param("ids") Collection<Long> ids, @Param("statuses") Collection<Booking.Status> statuses,
+			@Param("time") OffsetDateTime time);
+
+	@Query("select distinct b from Booking b left join fetch b.seats where b.id in :ids")
+	List<Booking> findWithSeatsByIdIn(@Param("ids") Collection<Long> ids);
+
+	// A locking read, so it sees the latest committed status rather than the transaction's snapshot
+	@Lock(LockModeType.PESSIMISTIC_READ)
+	@Query("select b.status from Booking b where b.id = :id")
+	Booking.Status findStatusForShare(@Param("id") Long id);
+
+	@Modifying
+	@Query("update Booking b set b.status = :to where b.id = :id and b.status in :from")
+	int transitionStatus(@Param("id") Long id, @Param("from") Collection<Booking.Status> from, @Param("to") Booking.Status to);
+
+	@Modifying
+	@Query("update Booking b set b.status = :to where b.id in :ids and b.status in :from")
+	int transitionAll(@Param("ids") Collection<Long> ids, @Param("from") Collection<Booking.Status> from, @Param("to") Booking.Status to);
+
+	@Modifying
+	@Query("update Booking b set b.status = :to, b.razorpayPaymentId = :paymentId, b.razorpaySignature = :signature where b.id = :id and b.status in :from")
+	int confirm(@Param("id") Long id, @Param("from") Collection<Booking.Status> from, @Param("to") Booking.Status to,
+			@Param("paymentId") String paymentId, @Param("signature") String signature);
+
+	// Callable outside a transaction, so callers need not hold one open across the payment gateway call
+	@Transactional
+	@Modifying
+	@Query("update Booking b set b.paymentOrderId = :orderId, b.status = :to where b.id = :id and b.status = :from")
+	int attachOrder(@Param("id") Long id, @Param("orderId") String orderId, @Param("from") Booking.Status from, @Param("to") Booking.Status to);
+
+	// Seats held or sold on one journey date across several events; undated rows are returned for the caller to keep or drop
+	@Query("select b.event.id as eventId, b.journeyDate as journeyDate, s.id as seatId, b.status as status, b.fromStop as fromStop, b.toStop as toStop"
+			+ " from Booking b join b.seats s where b.event.id in :eventIds and b.status in :statuses and (b.journeyDate = :date or b.journeyDate is null)")
+	List<EventHeldSeatView> findHeldSeatsByEventIds(@Param("eventIds") Collection<Long> eventIds, @Param("date") LocalDate date,
+			@Param("statuses") Collection<Booking.Status> statuses);
+
+	// Seats held or sold for one journey date; undated bookings count against the event's own date
+	@Query("select s.id as seatId, b.status as status, b.fromStop as fromStop, b.toStop as toStop from Booking b join b.seats s where b.event.id = :eventId and b.status in :statuses"
+			+ " and (b.journeyDate = :date or (:undated = true and b.journeyDate is null))")
+	List<HeldSeatView> findHeldSeats(@Param("eventId") Long eventId, @Param("date") LocalDate date,
+			@Param("undated") boolean undated, @Param("statuses") Collection<Booking.Status> statuses);
+
+	@Query("select s.id as seatId, b.status as status, b.fromStop as fromStop, b.toStop as toStop from Booking b join b.seats s where s.id in :seatIds and b.event.id = :eventId"
+			+ " and b.status in :statuses and (b.journeyDate = :date or (:undated = true and b.journeyDate is null))")
+	List<HeldSeatView> findHeldSeatsByIds(@Param("eventId") Long eventId, @Param("date") LocalDate date,
+			@Param("undated") boolean undated, @Param("statuses") Collection<Booking.Status> statuses,
+			@Param("seatIds") Collection<Long> seatIds);
+
+	interface ExpiryView {
+		Long getId();
+		OffsetDateTime getReservationExpiresAt();
+	}
+
+	interface HeldSeatView {
+		Long getSeatId();
+		Booking.Status getStatus();
+		Integer getFromStop();
+		Integer getToStop();
+	}
+
+	interface EventHeldSeatView extends HeldSeatView {
+		Long getEventId();
+		LocalDate getJourneyDate();
+	}
 }
\ No newline at end of file
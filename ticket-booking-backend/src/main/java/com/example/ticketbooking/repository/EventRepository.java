@@ -8,6 +8,7 @@ import org.springframework.data.repository.query.Param;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
 
 public interface EventRepository extends JpaRepository<Event, Long> {
 
@@ -63,4 +64,15 @@ public interface EventRepository extends JpaRepository<Event, Long> {
     List<String> findAllTrainOperators();
 
     boolean existsByName(String name);
+
+    @Query("select e.id from Event e")
+    List<Long> findAllIds();
+
+    @Query("select e.startTime as startTime, e.runningDays as runningDays from Event e where e.id = ?1")
+    Optional<RunView> findRunById(Long id);
+
+    interface RunView {
+        LocalDateTime getStartTime();
+        String getRunningDays();
+    }
 }
\ No newline at end of file
@@ -1,11 +1,14 @@
 package com.example.ticketbooking.repository;
 
 import com.example.ticketbooking.model.PNR;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -13,8 +16,16 @@ public interface PNRRepository extends JpaRepository<PNR, Long> {
 
     Optional<PNR> findByPnrNumber(String pnrNumber);
 
+    @Query("SELECT p.pnrNumber FROM PNR p WHERE p.pnrNumber IN :pnrNumbers")
+    List<String> findExistingPnrNumbers(@Param("pnrNumbers") Collection<String> pnrNumbers);
+
     Optional<PNR> findByBooking_Id(Long bookingId);
 
+    // Locking read, for PNRs another transaction may have committed after this one's snapshot
+    @Lock(LockModeType.PESSIMISTIC_READ)
+    @Query("SELECT p FROM PNR p WHERE p.booking.id = :bookingId")
+    List<PNR> findForShareByBookingId(@Param("bookingId") Long bookingId);
+
     @Query("SELECT p FROM PNR p WHERE p.trainNumber = :trainNumber AND p.journeyDate = :journeyDate")
     List<PNR> findByTrainNumberAndJourneyDate(@Param("trainNumber") String trainNumber, @Param("journeyDate") LocalDate journeyDate);
 
@@ -0,0 +1,31 @@
+package com.example.ticketbooking.repository;
+
+import com.example.ticketbooking.model.PaymentWebhookEvent;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+
+public interface PaymentWebhookEventRepository extends JpaRepository<PaymentWebhookEvent, Long> {
+
+	boolean existsByPaymentId(String paymentId);
+
+	@Query("select e.id from PaymentWebhookEvent e where e.status = com.example.ticketbooking.model.PaymentWebhookEvent.Status.PENDING order by e.id")
+	List<Long> findPendingIds(Limit limit);
+
+	// Takes the event for this worker; the row lock keeps other workers out until the outcome commits
+	@Modifying
+	@Query("update PaymentWebhookEvent e set e.status = com.example.ticketbooking.model.PaymentWebhookEvent.Status.PROCESSED, e.processedAt = :now"
+			+ " where e.id = :id and e.status = com.example.ticketbooking.model.PaymentWebhookEvent.Status.PENDING")
+	int markProcessed(@Param("id") Long id, @Param("now") OffsetDateTime now);
+
+	@Modifying
+	@Query("update PaymentWebhookEvent e set e.attempts = e.attempts + 1, e.lastError = :error,"
+			+ " e.status = case when e.attempts + 1 >= :maxAttempts then com.example.ticketbooking.model.PaymentWebhookEvent.Status.FAILED else e.status end"
+			+ " where e.id = :id and e.status = com.example.ticketbooking.model.PaymentWebhookEvent.Status.PENDING")
+	int recordFailure(@Param("id") Long id, @Param("error") String error, @Param("maxAttempts") int maxAttempts);
+}
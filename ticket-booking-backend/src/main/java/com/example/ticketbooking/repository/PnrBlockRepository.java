@@ -0,0 +1,7 @@
+package com.example.ticketbooking.repository;
+
+import com.example.ticketbooking.model.PnrBlock;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface PnrBlockRepository extends JpaRepository<PnrBlock, Long> {
+}
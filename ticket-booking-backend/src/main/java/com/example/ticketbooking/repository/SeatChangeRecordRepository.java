@@ -0,0 +1,26 @@
+package com.example.ticketbooking.repository;
+
+import com.example.ticketbooking.model.SeatChangeRecord;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.OffsetDateTime;
+import java.util.Collection;
+import java.util.List;
+
+public interface SeatChangeRecordRepository extends JpaRepository<SeatChangeRecord, Long> {
+
+	@Query("select coalesce(max(c.id), 0) from SeatChangeRecord c")
+	long findMaxId();
+
+	List<SeatChangeRecord> findByIdGreaterThanOrderById(Long id, Limit limit);
+
+	List<SeatChangeRecord> findByIdInOrderById(Collection<Long> ids);
+
+	@Modifying
+	@Query("delete from SeatChangeRecord c where c.createdAt < :before")
+	int deleteCreatedBefore(@Param("before") OffsetDateTime before);
+}
@@ -1,11 +1,20 @@
 package com.example.ticketbooking.repository;
 
+import com.example.ticketbooking.model.Booking;
 import com.example.ticketbooking.model.Seat;
 import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.LockOptions;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
+import java.time.LocalDate;
 import java.util.Collection;
 import java.util.List;
 
@@ -15,9 +24,50 @@ public interface SeatRepository extends JpaRepository<Seat, Long> {
 
     List<Seat> findByCoach_Id(Long coachId);
 
+    // Always locks in id order, so two buyers with overlapping seats cannot deadlock
     @Lock(LockModeType.PESSIMISTIC_WRITE)
-    @Query("select s from Seat s where s.id in ?1")
+    @Query("select s from Seat s where s.id in ?1 order by s.id")
     List<Seat> lockSeatsByIds(Collection<Long> seatIds);
 
-    long countByCoach_IdAndStatus(Long coachId, Seat.Status status);
+    /**
+     * Locks up to {@code limit} seats of one coach that no active booking of
+     * the journey date holds between the two stops, skipping seats another
+     * transaction has locked. Only seat rows are read, so no coach row is
+     * locked. Missing stops are passed as Integer.MIN_VALUE and
+     * Integer.MAX_VALUE; a null coach means the event's seats without one.
+     * Only seats with an id above {@code afterId} are considered.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = AvailableSettings.JAKARTA_LOCK_TIMEOUT, value = "" + LockOptions.SKIP_LOCKED))
+    @Query("select s from Seat s where s.event.id = :eventId and s.id > :afterId"
+            + " and (s.coach.id = :coachId or (:coachId is null and s.coach is null))"
+            + " and not exists (select 1 from Booking b join b.seats bs where bs.id = s.id and b.status in :statuses"
+            + " and (b.journeyDate = :date or (:undated = true and b.journeyDate is null))"
+            + " and coalesce(b.fromStop, -2147483648) < :toStop and :fromStop < coalesce(b.toStop, 2147483647))"
+            + " order by s.id")
+    List<Seat> claimAvailable(@Param("eventId") Long eventId, @Param("coachId") Long coachId, @Param("date") LocalDate date,
+            @Param("undated") boolean undated, @Param("statuses") Collection<Booking.Status> statuses,
+            @Param("fromStop") int fromStop, @Param("toStop") int toStop, @Param("afterId") long afterId, Limit limit);
+
+    @Query("select s.id as id, s.version as version from Seat s where s.id in ?1 order by s.id")
+    List<SeatVersionView> findVersionsByIdIn(Collection<Long> seatIds);
+
+    // Succeeds only if nobody claimed the seat since its version was read
+    @Modifying
+    @Query("update Seat s set s.version = s.version + 1 where s.id = ?1 and s.version = ?2")
+    int bumpVersion(Long seatId, Long version);
+
+    @Query("select s.id as id, c.id as coachId, c.classType as classType from Seat s left join s.coach c where s.event.id = ?1 order by c.position, c.id, s.id")
+    List<SeatSlotView> findSlotsByEventId(Long eventId);
+
+    interface SeatVersionView {
+        Long getId();
+        Long getVersion();
+    }
+
+    interface SeatSlotView {
+        Long getId();
+        Long getCoachId();
+        String getClassType();
+    }
 }
\ No newline at end of file
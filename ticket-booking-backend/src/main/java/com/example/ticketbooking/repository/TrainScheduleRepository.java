@@ -29,4 +29,38 @@ public interface TrainScheduleRepository extends JpaRepository<TrainSchedule, Lo
 
     @Query("SELECT ts FROM TrainSchedule ts WHERE ts.station.code = :stationCode ORDER BY ts.departureTime")
     List<TrainSchedule> findByStationCode(@Param("stationCode") String stationCode);
+
+    @Query("SELECT ts.sequenceNumber AS sequenceNumber, coalesce(ts.stationCode, s.code) AS stationCode FROM TrainSchedule ts JOIN ts.station s WHERE ts.event.id = :eventId ORDER BY ts.sequenceNumber")
+    List<StopView> findStopsByEventId(@Param("eventId") Long eventId);
+
+    // Stops a passenger can board or leave at, in route order per train
+    @Query("SELECT e.id AS eventId, e.trainNumber AS trainNumber, e.name AS trainName, ts.sequenceNumber AS sequenceNumber,"
+            + " coalesce(ts.stationCode, s.code) AS stationCode, coalesce(ts.stationName, s.name) AS stationName,"
+            + " ts.arrivalTime AS arrivalTime, ts.departureTime AS departureTime, ts.dayNumber AS dayNumber, e.runningDays AS runningDays"
+            + " FROM TrainSchedule ts JOIN ts.event e JOIN ts.station s WHERE (ts.isHalt IS NULL OR ts.isHalt = true) ORDER BY e.id, ts.sequenceNumber")
+    List<HaltView> findHalts();
+
+    @Query("SELECT e.id AS eventId, e.trainNumber AS trainNumber, e.name AS trainName, ts.sequenceNumber AS sequenceNumber,"
+            + " coalesce(ts.stationCode, s.code) AS stationCode, coalesce(ts.stationName, s.name) AS stationName,"
+            + " ts.arrivalTime AS arrivalTime, ts.departureTime AS departureTime, ts.dayNumber AS dayNumber, e.runningDays AS runningDays"
+            + " FROM TrainSchedule ts JOIN ts.event e JOIN ts.station s WHERE e.id = :eventId AND (ts.isHalt IS NULL OR ts.isHalt = true) ORDER BY ts.sequenceNumber")
+    List<HaltView> findHaltsByEventId(@Param("eventId") Long eventId);
+
+    interface HaltView {
+        Long getEventId();
+        String getTrainNumber();
+        String getTrainName();
+        Integer getSequenceNumber();
+        String getStationCode();
+        String getStationName();
+        LocalTime getArrivalTime();
+        LocalTime getDepartureTime();
+        String getDayNumber();
+        String getRunningDays();
+    }
+
+    interface StopView {
+        Integer getSequenceNumber();
+        String getStationCode();
+    }
 }
\ No newline at end of file
@@ -1,16 +1,24 @@
 package com.example.ticketbooking.security;
 
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
 import java.nio.charset.StandardCharsets;
 import java.security.Key;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
 import java.util.Date;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 @Service
 public class JwtService {
@@ -21,9 +29,22 @@ public class JwtService {
     @Value("${app.security.jwt.ttlMs:86400000}")
     private long ttlMs;
 
-    private Key getKey() {
-        byte[] keyBytes = secret.getBytes(StandardCharsets.UTF_8);
-        return Keys.hmacShaKeyFor(keyBytes);
+    @Value("${app.security.jwt.cache.max-entries:10000}")
+    private int cacheMaxEntries;
+
+    private Key key;
+    private JwtParser parser;
+
+    private record Verified(String subject, long expiresAt) {}
+
+    // Tokens whose signature has already been checked, keyed by a SHA-256 of the token and kept until they expire
+    private final Map<String, Verified> verified = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedQueue<String> order = new ConcurrentLinkedQueue<>();
+
+    @PostConstruct
+    void init() {
+        key = Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8));
+        parser = Jwts.parserBuilder().setSigningKey(key).build();
     }
 
     public String generateToken(String subject, Map<String, Object> claims) {
@@ -33,15 +54,52 @@ public class JwtService {
                 .setSubject(subject)
                 .setIssuedAt(new Date(now))
                 .setExpiration(new Date(now + ttlMs))
-                .signWith(getKey(), SignatureAlgorithm.HS256)
+                .signWith(key, SignatureAlgorithm.HS256)
                 .compact();
     }
 
     public Claims parse(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(getKey())
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
+        return parser.parseClaimsJws(token).getBody();
+    }
+
+    // Subject of a valid token; only the first request with a token pays for signature verification
+    public String verifiedSubject(String token) {
+        String hash = hash(token);
+        Verified hit = verified.get(hash);
+        long now = System.currentTimeMillis();
+        if (hit != null && hit.expiresAt() > now) return hit.subject();
+        if (hit != null) verified.remove(hash, hit);
+
+        Claims claims = parse(token);
+        Date expiration = claims.getExpiration();
+        if (cacheMaxEntries > 0 && expiration != null && verified.put(hash, new Verified(claims.getSubject(), expiration.getTime())) == null) {
+            order.add(hash);
+            trim();
+        }
+        return claims.getSubject();
+    }
+
+    @Scheduled(fixedDelayString = "${app.security.jwt.cache.sweep-ms:60000}")
+    public void evictExpired() {
+        long now = System.currentTimeMillis();
+        verified.values().removeIf(v -> v.expiresAt() <= now);
+        order.removeIf(hash -> !verified.containsKey(hash));
+    }
+
+    private void trim() {
+        while (verified.size() > cacheMaxEntries) {
+            String oldest = order.poll();
+            if (oldest == null) return;
+            verified.remove(oldest);
+        }
+    }
+
+    private static String hash(String token) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.US_ASCII));
+            return Base64.getEncoder().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,140 @@
+package com.example.ticketbooking.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Waiting room in front of booking creation. Callers draw numbered tickets,
+ * tickets are admitted in order at a fixed rate, and at most a fixed number of
+ * admitted callers run the booking path at once. Callers without a ticket go
+ * straight through only while nobody is waiting.
+ */
+@Service
+public class BookingAdmissionService {
+
+	public record QueueStatus(String token, long position, long etaSeconds, boolean admitted) {}
+
+	private static final class Ticket {
+		private final long number;
+		private volatile long lastSeen = System.currentTimeMillis();
+
+		private Ticket(long number) {
+			this.number = number;
+		}
+	}
+
+	private final double ratePerSecond;
+	private final long tokenTtlMillis;
+	private final Semaphore inFlight;
+	private final Map<String, Ticket> tickets = new ConcurrentHashMap<>();
+	// Live tickets not admitted yet, in line order
+	private final NavigableMap<Long, Ticket> queued = new TreeMap<>();
+	// Last ticket handed out and last ticket allowed in
+	private final AtomicLong issued = new AtomicLong();
+	private final AtomicLong admitted = new AtomicLong();
+	// Admitted tickets that have not got into the booking path yet
+	private int admittedWaiting;
+	private double credit;
+	private long lastTick = System.nanoTime();
+
+	public BookingAdmissionService(@Value("${app.booking.admission.rate-per-second:50}") double ratePerSecond,
+			@Value("${app.booking.admission.max-concurrent:8}") int maxConcurrent,
+			@Value("${app.booking.admission.token-ttl-seconds:120}") long tokenTtlSeconds) {
+		this.ratePerSecond = ratePerSecond;
+		this.tokenTtlMillis = tokenTtlSeconds * 1000;
+		this.inFlight = new Semaphore(maxConcurrent, true);
+		this.credit = burst();
+	}
+
+	public synchronized QueueStatus join() {
+		String token = UUID.randomUUID().toString();
+		Ticket ticket = new Ticket(issued.incrementAndGet());
+		tickets.put(token, ticket);
+		queued.put(ticket.number, ticket);
+		return statusOf(token, ticket);
+	}
+
+	public QueueStatus status(String token) {
+		Ticket ticket = ticket(token);
+		ticket.lastSeen = System.currentTimeMillis();
+		return statusOf(token, ticket);
+	}
+
+	/**
+	 * Lets the caller into the booking path and returns empty, in which case
+	 * {@link #exit()} must follow; otherwise returns where the caller stands.
+	 * Callers without a token only go straight in when nobody is queued or
+	 * admitted and still waiting, and they use up admission credit like a
+	 * ticket would.
+	 */
+	public synchronized Optional<QueueStatus> tryEnter(String token) {
+		if (token == null || token.isBlank()) {
+			refill();
+			if (queued.isEmpty() && admittedWaiting == 0 && credit >= 1 && inFlight.tryAcquire()) {
+				credit -= 1;
+				return Optional.empty();
+			}
+			return Optional.of(join());
+		}
+		Ticket ticket = ticket(token);
+		ticket.lastSeen = System.currentTimeMillis();
+		if (ticket.number > admitted.get() || !inFlight.tryAcquire()) return Optional.of(statusOf(token, ticket));
+		tickets.remove(token);
+		admittedWaiting--;
+		return Optional.empty();
+	}
+
+	public void exit() {
+		inFlight.release();
+	}
+
+	// Admits the next tickets in line and forgets callers that stopped polling
+	@Scheduled(fixedDelayString = "${app.booking.admission.tick-ms:100}")
+	public synchronized void admit() {
+		long cutoff = System.currentTimeMillis() - tokenTtlMillis;
+		tickets.values().removeIf(t -> {
+			if (t.lastSeen >= cutoff) return false;
+			if (queued.remove(t.number) == null) admittedWaiting--;
+			return true;
+		});
+		refill();
+		while (credit >= 1 && !queued.isEmpty()) {
+			admitted.set(queued.pollFirstEntry().getKey());
+			admittedWaiting++;
+			credit -= 1;
+		}
+		if (queued.isEmpty()) admitted.set(issued.get());
+	}
+
+	private void refill() {
+		long now = System.nanoTime();
+		credit = Math.min(credit + ratePerSecond * (now - lastTick) / 1e9, burst());
+		lastTick = now;
+	}
+
+	private double burst() {
+		return Math.max(1, ratePerSecond);
+	}
+
+	private Ticket ticket(String token) {
+		Ticket ticket = tickets.get(token);
+		if (ticket == null) throw new IllegalArgumentException("Unknown or expired queue token");
+		return ticket;
+	}
+
+	private QueueStatus statusOf(String token, Ticket ticket) {
+		long position = Math.max(0, ticket.number - admitted.get());
+		long eta = ratePerSecond > 0 ? (long) Math.ceil(position / ratePerSecond) : -1;
+		return new QueueStatus(token, position, eta, position == 0);
+	}
+}
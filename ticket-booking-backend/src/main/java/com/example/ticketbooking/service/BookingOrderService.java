@@ -0,0 +1,107 @@
+package com.example.ticketbooking.service;
+
+import com.example.ticketbooking.model.Booking;
+import com.example.ticketbooking.model.Seat;
+import com.example.ticketbooking.repository.BookingRepository;
+import com.razorpay.Order;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Creates the payment order of a held booking off the request thread, so no
+ * transaction stays open across the gateway call. The booking moves from
+ * HELD to ORDER_CREATED, or is cancelled and its seats released if the
+ * gateway keeps failing.
+ */
+@Service
+@Slf4j
+public class BookingOrderService {
+
+	private final PaymentService paymentService;
+	private final BookingRepository bookingRepository;
+	private final SeatInventoryService seatInventoryService;
+	private final SeatUpdateBroadcaster broadcaster;
+	private final TransactionTemplate transactionTemplate;
+	private final ExecutorService executor;
+
+	@Value("${app.booking.order.max-attempts:3}")
+	private int maxAttempts;
+
+	@Value("${app.booking.order.retry-backoff-ms:200}")
+	private long retryBackoffMs;
+
+	public BookingOrderService(PaymentService paymentService, BookingRepository bookingRepository,
+			SeatInventoryService seatInventoryService, SeatUpdateBroadcaster broadcaster,
+			TransactionTemplate transactionTemplate, @Qualifier("paymentOrderExecutor") ExecutorService executor) {
+		this.paymentService = paymentService;
+		this.bookingRepository = bookingRepository;
+		this.seatInventoryService = seatInventoryService;
+		this.broadcaster = broadcaster;
+		this.transactionTemplate = transactionTemplate;
+		this.executor = executor;
+	}
+
+	// Starts order creation once the hold has committed, or right away without a transaction
+	public void createOrderAfterCommit(Long bookingId, long amountInPaise) {
+		Runnable task = () -> executor.execute(() -> createOrder(bookingId, amountInPaise));
+		if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+			task.run();
+			return;
+		}
+		TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+			@Override
+			public void afterCommit() {
+				task.run();
+			}
+		});
+	}
+
+	void createOrder(Long bookingId, long amountInPaise) {
+		for (int attempt = 1; attempt <= maxAttempts; attempt++) {
+			try {
+				Order order = paymentService.createOrder(amountInPaise, "booking-" + bookingId);
+				String orderId = order.get("id");
+				Integer updated = transactionTemplate.execute(tx ->
+						bookingRepository.attachOrder(bookingId, orderId, Booking.Status.HELD, Booking.Status.ORDER_CREATED));
+				if (updated == null || updated == 0) {
+					log.info("Booking {} left HELD before its payment order {} was attached", bookingId, orderId);
+				}
+				return;
+			} catch (Exception e) {
+				log.warn("Payment order for booking {} failed (attempt {}/{}): {}", bookingId, attempt, maxAttempts, e.getMessage());
+				if (attempt < maxAttempts && !sleep(retryBackoffMs << (attempt - 1))) break;
+			}
+		}
+		cancel(bookingId);
+	}
+
+	private void cancel(Long bookingId) {
+		transactionTemplate.executeWithoutResult(tx -> bookingRepository.findByIdWithEventAndSeats(bookingId).ifPresent(b -> {
+			if (bookingRepository.transitionStatus(b.getId(), List.of(Booking.Status.HELD), Booking.Status.CANCELED) == 0) return;
+			Long eventId = b.getEvent().getId();
+			List<Seat> seats = new ArrayList<>(b.getSeats());
+			long legs = seatInventoryService.heldLegs(eventId, b.getFromStop(), b.getToStop());
+			seatInventoryService.releaseAfterCommit(eventId, b.getJourneyDate(), legs, seats.stream().map(Seat::getId).toList());
+			broadcaster.broadcastSeatStatus(eventId, b.getJourneyDate(), seats);
+		}));
+	}
+
+	private static boolean sleep(long millis) {
+		try {
+			Thread.sleep(millis);
+			return true;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return false;
+		}
+	}
+}
@@ -10,15 +10,19 @@ import com.example.ticketbooking.repository.BookingRepository;
 import com.example.ticketbooking.repository.EventRepository;
 import com.example.ticketbooking.repository.SeatRepository;
 import com.example.ticketbooking.repository.PNRRepository;
-import com.razorpay.Order;
+import com.example.ticketbooking.repository.TrainScheduleRepository;
 import jakarta.persistence.EntityNotFoundException;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
 import java.time.OffsetDateTime;
 import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
@@ -35,35 +39,55 @@ public class BookingService {
 	private final PaymentService paymentService;
 	private final PNRRepository pnrRepository;
 	private final SeatUpdateBroadcaster seatUpdateBroadcaster;
+	private final SeatInventoryService seatInventoryService;
+	private final BookingOrderService bookingOrderService;
+	private final ReservationExpiryScheduler reservationExpiryScheduler;
+	private final SeatClaimService seatClaimService;
+	private final PnrAllocator pnrAllocator;
+	private final TrainScheduleRepository trainScheduleRepository;
+
+	// A halt of one run of a train, dated from the day the run leaves its first station
+	private record Stop(Integer sequence, String name, LocalDateTime arrival, LocalDateTime departure) {}
 
-	@Transactional
 	public BookingDtos.CreateBookingResponse createBooking(BookingDtos.CreateBookingRequest request) throws Exception {
+		return seatClaimService.inTransaction(() -> holdSeats(request));
+	}
+
+	private BookingDtos.CreateBookingResponse holdSeats(BookingDtos.CreateBookingRequest request) {
 		Event event = eventRepository.findById(request.getEventId())
 				.orElseThrow(() -> new EntityNotFoundException("Event not found"));
 
+		// Parse journey date from validated YYYY-MM-DD string; seats are held for that date only, if the train is sold for it
+		LocalDate journeyDate = seatInventoryService.saleDate(event.getId(), request.getJourneyDate() != null && !request.getJourneyDate().isBlank()
+				? LocalDate.parse(request.getJourneyDate())
+				: event.getStartTime().toLocalDate());
+
+		// Seats are only taken on the legs between the boarding and alighting stops
+		SeatLayout layout = seatInventoryService.layout(event.getId());
+		Integer fromStop = layout.stopSequence(request.getFromStation());
+		Integer toStop = layout.stopSequence(request.getToStation());
+		long legs = layout.legMask(fromStop, toStop);
+
 		List<Long> requestedSeatIds = request.getSeatIds() == null ? java.util.List.of() : request.getSeatIds();
-		List<Seat> lockedSeats = requestedSeatIds.isEmpty() ? java.util.List.of() : seatRepository.lockSeatsByIds(requestedSeatIds);
-		if (!requestedSeatIds.isEmpty() && lockedSeats.size() != requestedSeatIds.size()) {
-			throw new IllegalArgumentException("One or more seats not found");
-		}
-		for (Seat seat : lockedSeats) {
-			if (!seat.getEvent().getId().equals(event.getId())) {
-				throw new IllegalArgumentException("Seat does not belong to event");
-			}
-			if (seat.getStatus() != Seat.Status.AVAILABLE) {
-				throw new IllegalStateException("Seat not available: " + seat.getId());
-			}
-		}
+		// Conflicts are rejected by the database when claims are shared, then by the in-memory inventory of the journey date
+		seatClaimService.claim(event.getId(), journeyDate, legs, requestedSeatIds);
+		seatInventoryService.hold(event.getId(), journeyDate, legs, requestedSeatIds);
+		List<Seat> lockedSeats = requestedSeatIds.isEmpty() ? java.util.List.of() : seatRepository.findAllById(requestedSeatIds);
 
 		int passengerCount = request.getPassengers() == null ? 0 : request.getPassengers().size();
 		// Auto-assign seats if none provided
 		if (lockedSeats.isEmpty() && passengerCount > 0) {
-			List<Seat> eventSeats = seatRepository.findByEvent_Id(event.getId());
-			List<Seat> availableSeats = eventSeats.stream().filter(s -> s.getStatus() == Seat.Status.AVAILABLE).limit(passengerCount).toList();
-			if (availableSeats.size() == passengerCount) {
-				lockedSeats = availableSeats;
-				// no pessimistic lock for simplicity here
+			List<Long> heldIds;
+			if (seatClaimService.getMode() == SeatClaimService.Mode.MEMORY) {
+				heldIds = seatInventoryService.holdAvailable(event.getId(), journeyDate, legs, request.getClassType(), request.getCoachId(), passengerCount);
+			} else {
+				heldIds = seatClaimService.claimAvailable(event.getId(), journeyDate, fromStop, toStop, request.getClassType(), request.getCoachId(), passengerCount);
+				seatInventoryService.hold(event.getId(), journeyDate, legs, heldIds);
+			}
+			if (heldIds.size() < passengerCount) {
+				throw new IllegalStateException("Not enough seats available for " + passengerCount + " passengers");
 			}
+			lockedSeats = seatRepository.findAllById(heldIds);
 		}
 
 		BigDecimal total = event.getSeatPrice().multiply(BigDecimal.valueOf(Math.max(lockedSeats.size(), passengerCount)));
@@ -74,20 +98,19 @@ public class BookingService {
 		booking.setCustomerName(request.getCustomerName());
 		booking.setCustomerEmail(request.getCustomerEmail());
 		booking.setCustomerPhone(request.getCustomerPhone());
-		// Parse and set journey date from validated YYYY-MM-DD string
-		if (request.getJourneyDate() != null && !request.getJourneyDate().isBlank()) {
-			booking.setJourneyDate(java.time.LocalDate.parse(request.getJourneyDate()));
-		}
+		booking.setJourneyDate(journeyDate);
+		booking.setFromStop(fromStop);
+		booking.setToStop(toStop);
 		booking.setTotalAmount(total);
-		booking.setStatus(Booking.Status.PENDING_PAYMENT);
+		booking.setStatus(Booking.Status.HELD);
 		booking.setCreatedAt(OffsetDateTime.now());
 		booking.setReservationExpiresAt(OffsetDateTime.now().plusMinutes(10));
 		booking = bookingRepository.save(booking);
+		reservationExpiryScheduler.scheduleAfterCommit(booking.getId(), booking.getReservationExpiresAt());
 
-		for (Seat seat : lockedSeats) { seat.setStatus(Seat.Status.RESERVED); }
 		// Broadcast seat reservation updates
 		if (!lockedSeats.isEmpty()) {
-			seatUpdateBroadcaster.broadcastSeatStatus(event.getId(), lockedSeats);
+			seatUpdateBroadcaster.broadcastSeatStatus(event.getId(), journeyDate, lockedSeats);
 		}
 
 		// Save passengers; map seats if assigned
@@ -108,30 +131,39 @@ public class BookingService {
 			}
 		}
 
-		// Persist passengers before creating payment order so booking reflects full state
-		booking = bookingRepository.save(booking);
+		Booking saved = bookingRepository.save(booking);
 
+		// The gateway call runs after the hold commits; clients poll for the order
 		long amountInPaise = total.multiply(BigDecimal.valueOf(100)).longValue();
-		Order order = paymentService.createOrder(amountInPaise, "booking-" + booking.getId());
-		booking.setPaymentOrderId(order.get("id"));
+		bookingOrderService.createOrderAfterCommit(saved.getId(), amountInPaise);
 
-		Booking saved = bookingRepository.save(booking);
+		return toOrderResponse(saved);
+	}
 
+	public BookingDtos.CreateBookingResponse toOrderResponse(Booking booking) {
 		return BookingDtos.CreateBookingResponse.builder()
-				.bookingId(saved.getId())
-				.orderId(saved.getPaymentOrderId())
+				.bookingId(booking.getId())
+				.status(booking.getStatus().name())
+				.orderId(booking.getPaymentOrderId())
 				.razorpayKeyId(paymentService.getKeyId())
-				.amount(saved.getTotalAmount())
+				.amount(booking.getTotalAmount())
 				.currency("INR")
-				.reservationExpiresAt(saved.getReservationExpiresAt())
+				.reservationExpiresAt(booking.getReservationExpiresAt())
 				.build();
 	}
 
+	/**
+	 * Confirms a paid booking with one read, one guarded update and the PNR
+	 * insert. The returned booking carries its PNR in {@link Booking#getPnrs()}.
+	 */
 	@Transactional
 	public Booking confirmPayment(BookingDtos.VerifyPaymentRequest request) throws Exception {
-		Booking booking = bookingRepository.findById(request.getBookingId())
+		Booking booking = bookingRepository.findForConfirmation(request.getBookingId())
 				.orElseThrow(() -> new EntityNotFoundException("Booking not found"));
 
+		if (booking.getPaymentOrderId() == null) {
+			throw new IllegalStateException("Payment order is not ready yet");
+		}
 		if (!booking.getPaymentOrderId().equals(request.getRazorpayOrderId())) {
 			throw new IllegalArgumentException("OrderId mismatch");
 		}
@@ -145,58 +177,117 @@ public class BookingService {
 			throw new IllegalArgumentException("Invalid payment signature");
 		}
 
-		booking.setRazorpayPaymentId(request.getRazorpayPaymentId());
-		booking.setRazorpaySignature(request.getRazorpaySignature());
-		booking.setStatus(Booking.Status.CONFIRMED);
+		return confirmPaid(booking, request.getRazorpayPaymentId(), request.getRazorpaySignature());
+	}
+
+	// Confirmation for a payment reported by the gateway webhook, which carries no client signature
+	@Transactional
+	public Booking confirmFromWebhook(String orderId, String paymentId) {
+		Booking booking = bookingRepository.findForConfirmationByPaymentOrderId(orderId)
+				.orElseThrow(() -> new EntityNotFoundException("No booking for order " + orderId));
+		return confirmPaid(booking, paymentId, null);
+	}
+
+	private Booking confirmPaid(Booking booking, String paymentId, String signature) {
+		// Only one of payment confirmation and reservation expiry may move a pending booking on
+		boolean pending = booking.getStatus().isAwaitingPayment()
+				&& bookingRepository.confirm(booking.getId(), Booking.Status.AWAITING_PAYMENT, Booking.Status.CONFIRMED,
+						paymentId, signature) == 1;
+		if (!pending) {
+			// The loaded booking may predate a confirmation committed meanwhile, e.g. by the webhook; ask the row itself
+			if (bookingRepository.findStatusForShare(booking.getId()) != Booking.Status.CONFIRMED) {
+				throw new IllegalStateException("Booking is no longer awaiting payment");
+			}
+			booking.getPnrs().addAll(pnrRepository.findForShareByBookingId(booking.getId()));
+		}
 
 		Set<Seat> seats = booking.getSeats();
-		for (Seat seat : seats) {
-			seat.setStatus(Seat.Status.BOOKED);
+		Long eventId = booking.getEvent().getId();
+		if (pending) {
+			booking.setRazorpayPaymentId(paymentId);
+			booking.setRazorpaySignature(signature);
+			booking.setStatus(Booking.Status.CONFIRMED);
+			long legs = seatInventoryService.heldLegs(eventId, booking.getFromStop(), booking.getToStop());
+			seatInventoryService.confirm(eventId, booking.getJourneyDate(), legs, seats.stream().map(Seat::getId).toList());
 		}
 
-		// Create PNR if not exists
-		Optional<PNR> existing = pnrRepository.findByBooking_Id(booking.getId());
-		if (existing.isEmpty()) {
-			PNR pnr = new PNR();
-			pnr.setPnrNumber(generatePNR());
-			pnr.setBooking(booking);
-			pnr.setPnrGeneratedDate(LocalDateTime.now());
-			Event e = booking.getEvent();
-			pnr.setJourneyDate(e.getStartTime());
-			pnr.setSourceStation(e.getSource());
-			pnr.setDestinationStation(e.getDestination());
-			pnr.setTrainNumber(e.getTrainNumber());
-			pnr.setTrainName(e.getName());
-			String classType = seats.stream().findFirst().map(s -> s.getCoach() != null ? s.getCoach().getClassType() : null).orElse(e.getClassType());
-			pnr.setClassType(classType);
-			pnr.setNumberOfPassengers(seats.size());
-			pnr.setTotalFare(booking.getTotalAmount());
-			pnr.setSeatNumbers(seats.stream().map(s -> s.getRowLabel() + s.getSeatNumber()).collect(Collectors.joining(",")));
-			pnr.setCoachCodes(seats.stream().map(s -> s.getCoach() != null ? s.getCoach().getCode() : "").distinct().collect(Collectors.joining(",")));
-			pnr.setDepartureTime(e.getStartTime());
-			pnr.setArrivalTime(e.getEndTime());
-			pnr.setStatus(PNR.PNRStatus.CONFIRMED);
-			pnr.setChartStatus("Not Prepared");
-			pnr.setPlatformNumber(e.getPlatformNumber());
-			pnrRepository.save(pnr);
+		if (booking.getPnrs().isEmpty()) {
+			booking.getPnrs().add(pnrRepository.save(newPnr(booking, seats)));
 		}
 
-		Booking savedBooking = bookingRepository.save(booking);
-		// Broadcast seat booking updates
-		if (seats != null && !seats.isEmpty()) {
-			seatUpdateBroadcaster.broadcastSeatStatus(booking.getEvent().getId(), new java.util.ArrayList<>(seats));
+		if (pending && !seats.isEmpty()) {
+			seatUpdateBroadcaster.broadcastSeatStatus(eventId, booking.getJourneyDate(), new java.util.ArrayList<>(seats));
 		}
-		return savedBooking;
+		return booking;
 	}
 
-	public Optional<Booking> findById(Long id) {
-		return bookingRepository.findByIdWithEventAndSeats(id);
+	private PNR newPnr(Booking booking, Set<Seat> seats) {
+		PNR pnr = new PNR();
+		pnr.setPnrNumber(pnrAllocator.next());
+		pnr.setBooking(booking);
+		pnr.setPnrGeneratedDate(LocalDateTime.now());
+		Event e = booking.getEvent();
+		// The run the seats were sold for, which need not be the train's own date
+		LocalDate runDate = booking.getJourneyDate() != null ? booking.getJourneyDate() : e.getStartTime().toLocalDate();
+		LocalDateTime departure = runDate.atTime(e.getStartTime().toLocalTime());
+		LocalDateTime arrival = departure.plus(Duration.between(e.getStartTime(), e.getEndTime()));
+		String source = e.getSource();
+		String destination = e.getDestination();
+		if (booking.getFromStop() != null || booking.getToStop() != null) {
+			for (Stop stop : stopsOf(e.getId(), runDate)) {
+				if (stop.sequence().equals(booking.getFromStop())) {
+					source = stop.name();
+					departure = stop.departure();
+				}
+				if (stop.sequence().equals(booking.getToStop())) {
+					destination = stop.name();
+					arrival = stop.arrival();
+				}
+			}
+		}
+		pnr.setJourneyDate(departure);
+		pnr.setSourceStation(source);
+		pnr.setDestinationStation(destination);
+		pnr.setTrainNumber(e.getTrainNumber());
+		pnr.setTrainName(e.getName());
+		String classType = seats.stream().findFirst().map(s -> s.getCoach() != null ? s.getCoach().getClassType() : null).orElse(e.getClassType());
+		pnr.setClassType(classType);
+		pnr.setNumberOfPassengers(seats.size());
+		pnr.setTotalFare(booking.getTotalAmount());
+		pnr.setSeatNumbers(seats.stream().map(s -> s.getRowLabel() + s.getSeatNumber()).collect(Collectors.joining(",")));
+		pnr.setCoachCodes(seats.stream().map(s -> s.getCoach() != null ? s.getCoach().getCode() : "").distinct().collect(Collectors.joining(",")));
+		pnr.setDepartureTime(departure);
+		pnr.setArrivalTime(arrival);
+		pnr.setStatus(PNR.PNRStatus.CONFIRMED);
+		pnr.setChartStatus("Not Prepared");
+		pnr.setPlatformNumber(e.getPlatformNumber());
+		return pnr;
+	}
+
+	// Halts in route order; a day is added whenever the clock goes backwards or the stated day says so
+	private List<Stop> stopsOf(Long eventId, LocalDate runDate) {
+		List<Stop> stops = new ArrayList<>();
+		LocalDateTime midnight = runDate.atStartOfDay();
+		int day = 0;
+		long previous = Long.MIN_VALUE;
+		for (TrainScheduleRepository.HaltView halt : trainScheduleRepository.findHaltsByEventId(eventId)) {
+			LocalTime a = halt.getArrivalTime() != null ? halt.getArrivalTime() : halt.getDepartureTime();
+			LocalTime d = halt.getDepartureTime() != null ? halt.getDepartureTime() : a;
+			if (a == null) continue;
+			String digits = halt.getDayNumber() == null ? "" : halt.getDayNumber().replaceAll("\\D", "");
+			if (!digits.isEmpty() && digits.length() <= 3) day = Math.max(day, Integer.parseInt(digits) - 1);
+			long arrival = day * 1440L + a.toSecondOfDay() / 60;
+			while (arrival < previous) { arrival += 1440; day++; }
+			long departure = day * 1440L + d.toSecondOfDay() / 60;
+			while (departure < arrival) { departure += 1440; day++; }
+			previous = departure;
+			String name = halt.getStationName() != null ? halt.getStationName() : halt.getStationCode();
+			stops.add(new Stop(halt.getSequenceNumber(), name, midnight.plusMinutes(arrival), midnight.plusMinutes(departure)));
+		}
+		return stops;
 	}
 
-	private String generatePNR() {
-		java.util.Random random = new java.util.Random();
-		StringBuilder pnr = new StringBuilder();
-		for (int i = 0; i < 10; i++) { pnr.append(random.nextInt(10)); }
-		return pnr.toString();
+	public Optional<Booking> findById(Long id) {
+		return bookingRepository.findByIdWithEventAndSeats(id);
 	}
-}
\ No newline at end of file
+}
@@ -0,0 +1,164 @@
+package com.example.ticketbooking.service;
+
+import com.example.ticketbooking.model.SeatChangeRecord;
+import com.example.ticketbooking.repository.SeatChangeRecordRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * Seat changes shared through the application database. Each change is a row
+ * of seat_changes written by the transaction that made it; every instance
+ * polls for rows past the highest id it has seen and hands those written by
+ * other instances to its listeners. Ids are taken at insert but become
+ * visible at commit, so a missing id is waited on for a short while before
+ * the poller moves past it. Ids are not consecutive on every database, and a
+ * writer may just be slow, so skipped ids are looked up again on every poll
+ * for the retention period and delivered late if they turn up. Lag is
+ * bounded by the poll interval, plus the gap timeout when a writer is slow to
+ * commit.
+ */
+@Service
+@ConditionalOnProperty(name = "app.realtime.bus.mode", havingValue = "DATABASE")
+@Slf4j
+public class DatabaseSeatEventBus implements SeatEventBus {
+
+	private final SeatChangeRecordRepository changeRepository;
+	private static final int MAX_SKIPPED = 10_000;
+
+	private final int batchSize;
+	private final long gapTimeoutMillis;
+	private final long retentionMinutes;
+	// Unique per process, so two instances on one host still tell their changes apart
+	private final String node = UUID.randomUUID().toString();
+	private final List<Consumer<SeatChange>> listeners = new CopyOnWriteArrayList<>();
+	// Ids the poller moved past, with when; only touched by the poller
+	private final LinkedHashMap<Long, Long> skipped = new LinkedHashMap<>();
+
+	private volatile long highWaterMark = -1;
+	// When the poller first stopped at the current gap, or 0 when it is not waiting on one
+	private long gapSince;
+
+	public DatabaseSeatEventBus(SeatChangeRecordRepository changeRepository,
+			@Value("${app.realtime.bus.batch-size:500}") int batchSize,
+			@Value("${app.realtime.bus.gap-timeout-ms:2000}") long gapTimeoutMillis,
+			@Value("${app.realtime.bus.retention-minutes:60}") long retentionMinutes) {
+		this.changeRepository = changeRepository;
+		this.batchSize = batchSize;
+		this.gapTimeoutMillis = gapTimeoutMillis;
+		this.retentionMinutes = retentionMinutes;
+	}
+
+	@Override
+	public void publish(SeatChange change) {
+		changeRepository.save(SeatChangeRecord.builder()
+				.node(node)
+				.eventId(change.eventId())
+				.journeyDate(change.journeyDate())
+				.legs(change.legs())
+				.fromStatus(change.from())
+				.toStatus(change.to())
+				.seatIds(change.seatIds().stream().map(String::valueOf).collect(Collectors.joining(",")))
+				.createdAt(OffsetDateTime.now())
+				.build());
+	}
+
+	@Override
+	public void subscribe(Consumer<SeatChange> listener) {
+		listeners.add(listener);
+	}
+
+	// Inventories are loaded from bookings on demand, so changes from before startup are never needed
+	@EventListener(ApplicationReadyEvent.class)
+	public void start() {
+		highWaterMark = changeRepository.findMaxId();
+	}
+
+	@Scheduled(fixedDelayString = "${app.realtime.bus.poll-ms:200}")
+	public void poll() {
+		if (highWaterMark < 0) return;
+		recheckSkipped();
+		List<SeatChangeRecord> rows;
+		do {
+			rows = changeRepository.findByIdGreaterThanOrderById(highWaterMark, Limit.of(batchSize));
+			for (SeatChangeRecord row : rows) {
+				if (row.getId() != highWaterMark + 1) {
+					if (!gapExpired()) return;
+					skip(highWaterMark + 1, row.getId());
+				}
+				gapSince = 0;
+				highWaterMark = row.getId();
+				if (!node.equals(row.getNode())) deliver(row);
+			}
+		} while (rows.size() == batchSize);
+	}
+
+	@Scheduled(fixedDelayString = "${app.realtime.bus.purge-ms:600000}")
+	@Transactional
+	public void purge() {
+		changeRepository.deleteCreatedBefore(OffsetDateTime.now().minusMinutes(retentionMinutes));
+	}
+
+	private void skip(long from, long to) {
+		long now = System.currentTimeMillis();
+		for (long id = Math.max(from, to - MAX_SKIPPED); id < to; id++) skipped.put(id, now);
+		if (to - from > MAX_SKIPPED) log.warn("Seat change ids {} to {} skipped without being rechecked", from, to - MAX_SKIPPED - 1);
+		Iterator<Long> oldest = skipped.keySet().iterator();
+		while (skipped.size() > MAX_SKIPPED) {
+			oldest.next();
+			oldest.remove();
+		}
+	}
+
+	// Delivers rows that committed after the poller moved past their ids
+	private void recheckSkipped() {
+		if (skipped.isEmpty()) return;
+		long cutoff = System.currentTimeMillis() - TimeUnit.MINUTES.toMillis(retentionMinutes);
+		skipped.values().removeIf(since -> since < cutoff);
+		List<Long> ids = new ArrayList<>(skipped.keySet());
+		for (int i = 0; i < ids.size(); i += batchSize) {
+			for (SeatChangeRecord row : changeRepository.findByIdInOrderById(ids.subList(i, Math.min(ids.size(), i + batchSize)))) {
+				skipped.remove(row.getId());
+				log.debug("Seat change {} from {} committed after its id was skipped", row.getId(), row.getNode());
+				if (!node.equals(row.getNode())) deliver(row);
+			}
+		}
+	}
+
+	private boolean gapExpired() {
+		long now = System.currentTimeMillis();
+		if (gapSince == 0) gapSince = now;
+		return now - gapSince >= gapTimeoutMillis;
+	}
+
+	private void deliver(SeatChangeRecord row) {
+		List<Long> seatIds = row.getSeatIds().isEmpty() ? List.of()
+				: Arrays.stream(row.getSeatIds().split(",")).map(Long::valueOf).toList();
+		SeatChange change = new SeatChange(row.getEventId(), row.getJourneyDate(), row.getLegs(), row.getFromStatus(), row.getToStatus(), seatIds);
+		for (Consumer<SeatChange> listener : listeners) {
+			try {
+				listener.accept(change);
+			} catch (RuntimeException e) {
+				log.warn("Seat change {} from {} was not applied", row.getId(), row.getNode(), e);
+			}
+		}
+	}
+}
@@ -0,0 +1,133 @@
+package com.example.ticketbooking.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Replays the first response of a request carrying an Idempotency-Key, so
+ * client retries never re-enter the booking path. Keys are scoped to the
+ * caller and the operation and bound to a hash of the request body, so a key
+ * reused for a different request is refused with 422. The store keeps at most a fixed number of
+ * responses for a fixed time. A duplicate arriving while the first request is
+ * still running waits for its result.
+ */
+@Service
+public class IdempotencyService {
+
+	private record Entry(String key, String fingerprint, CompletableFuture<ResponseEntity<?>> response, long createdAt) {}
+
+	private final ObjectMapper objectMapper;
+	private final int maxEntries;
+	private final long ttlMillis;
+	private final long waitMillis;
+	private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+	// Entries in insertion order, used to drop the oldest responses once the store is full
+	private final ConcurrentLinkedQueue<Entry> order = new ConcurrentLinkedQueue<>();
+
+	public IdempotencyService(ObjectMapper objectMapper,
+			@Value("${app.booking.idempotency.max-entries:10000}") int maxEntries,
+			@Value("${app.booking.idempotency.ttl-minutes:60}") long ttlMinutes,
+			@Value("${app.booking.idempotency.wait-seconds:30}") long waitSeconds) {
+		this.objectMapper = objectMapper;
+		this.maxEntries = maxEntries;
+		this.ttlMillis = TimeUnit.MINUTES.toMillis(ttlMinutes);
+		this.waitMillis = TimeUnit.SECONDS.toMillis(waitSeconds);
+	}
+
+	public ResponseEntity<?> execute(String operation, String key, Object request, Supplier<ResponseEntity<?>> action) {
+		if (key == null || key.isBlank()) return action.get();
+		if (key.length() > 255) throw new IllegalArgumentException("Idempotency-Key is too long");
+
+		String storeKey = operation + ':' + caller() + ':' + key;
+		Entry entry = new Entry(storeKey, fingerprint(request), new CompletableFuture<>(), System.currentTimeMillis());
+		Entry existing = entries.putIfAbsent(storeKey, entry);
+		if (existing != null && !expired(existing)) {
+			if (!existing.fingerprint().equals(entry.fingerprint())) {
+				return ResponseEntity.unprocessableEntity().body(Map.of("error", "IDEMPOTENCY_KEY_REUSED",
+						"message", "Idempotency-Key was already used with a different request"));
+			}
+			return await(existing);
+		}
+		if (existing != null && !entries.replace(storeKey, existing, entry)) return execute(operation, key, request, action);
+
+		order.add(entry);
+		trim();
+		try {
+			ResponseEntity<?> response = action.get();
+			entry.response().complete(response);
+			// Answers that ask the client to come back later must not be replayed
+			if (response.getStatusCode().is5xxServerError() || response.getStatusCode().value() == 429) {
+				entries.remove(storeKey, entry);
+			}
+			return response;
+		} catch (RuntimeException e) {
+			entries.remove(storeKey, entry);
+			entry.response().completeExceptionally(e);
+			throw e;
+		}
+	}
+
+	@Scheduled(fixedDelayString = "${app.booking.idempotency.sweep-ms:60000}")
+	public void evictExpired() {
+		entries.values().removeIf(this::expired);
+		order.removeIf(entry -> entries.get(entry.key()) != entry);
+	}
+
+	private ResponseEntity<?> await(Entry entry) {
+		try {
+			return entry.response().get(waitMillis, TimeUnit.MILLISECONDS);
+		} catch (ExecutionException e) {
+			throw e.getCause() instanceof RuntimeException re ? re : new IllegalStateException(e.getCause());
+		} catch (TimeoutException e) {
+			throw new IllegalStateException("A request with this Idempotency-Key is still in progress");
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while waiting for the original request");
+		}
+	}
+
+	private void trim() {
+		while (entries.size() > maxEntries) {
+			Entry oldest = order.poll();
+			if (oldest == null) return;
+			// A key stored again since has a newer entry further back in the queue
+			entries.remove(oldest.key(), oldest);
+		}
+	}
+
+	private String fingerprint(Object request) {
+		try {
+			MessageDigest digest = MessageDigest.getInstance("SHA-256");
+			return HexFormat.of().formatHex(digest.digest(objectMapper.writeValueAsBytes(request)));
+		} catch (JsonProcessingException | NoSuchAlgorithmException e) {
+			throw new IllegalStateException("Could not hash the request", e);
+		}
+	}
+
+	private boolean expired(Entry entry) {
+		return entry.createdAt() < System.currentTimeMillis() - ttlMillis;
+	}
+
+	private static String caller() {
+		Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+		return auth != null && auth.isAuthenticated() ? auth.getName() : "anonymous";
+	}
+}
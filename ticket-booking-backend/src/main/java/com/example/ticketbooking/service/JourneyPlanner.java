@@ -0,0 +1,366 @@
+package com.example.ticketbooking.service;
+
+import com.example.ticketbooking.dto.JourneyDtos;
+import com.example.ticketbooking.repository.TrainScheduleRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Journeys with changes of train, planned by connection scan. Every hop
+ * between consecutive halts of a train is a connection, and all of them are
+ * kept in flat arrays sorted by departure, unrolled over the days a journey
+ * can span; a day's run of a train that does not run that weekday is never
+ * boarded. Round k of the scan only boards trains at
+ * stations reached in round k-1, so it finds the earliest arrival with at
+ * most k trains; every round that arrives earlier than the one before adds a
+ * journey. Changing trains takes at least the minimum connection time.
+ */
+@Service
+@Slf4j
+public class JourneyPlanner {
+
+	private static final int DAY = 1440;
+	private static final int NONE = -1;
+
+	private final TrainScheduleRepository trainScheduleRepository;
+	private final int minConnectionMinutes;
+	private final int horizonMinutes;
+	private final int maxTransfers;
+
+	private volatile Timetable timetable = Timetable.build(List.of(), 0);
+	private volatile boolean stale;
+
+	public JourneyPlanner(TrainScheduleRepository trainScheduleRepository,
+			@Value("${app.journey.min-connection-minutes:30}") int minConnectionMinutes,
+			@Value("${app.journey.horizon-hours:48}") int horizonHours,
+			@Value("${app.journey.max-transfers:3}") int maxTransfers) {
+		this.trainScheduleRepository = trainScheduleRepository;
+		this.minConnectionMinutes = minConnectionMinutes;
+		this.horizonMinutes = horizonHours * 60;
+		this.maxTransfers = maxTransfers;
+	}
+
+	// Ordered by transfers; the first needs the fewest changes and the last arrives earliest
+	public List<JourneyDtos.Journey> plan(String fromStation, String toStation, LocalDate date, LocalTime after, int transfers) {
+		Timetable tt = timetable;
+		Integer origin = fromStation == null ? null : tt.stationIds.get(code(fromStation));
+		Integer target = toStation == null ? null : tt.stationIds.get(code(toStation));
+		if (origin == null || target == null || origin.equals(target)) return List.of();
+
+		int rounds = Math.max(0, Math.min(transfers, maxTransfers)) + 1;
+		int start = after == null ? 0 : after.getHour() * 60 + after.getMinute();
+		int stations = tt.stationCodes.length;
+		// Per round: when each station can be left again, and the trip legs that got there
+		int[][] ready = new int[rounds + 1][];
+		int[][] enter = new int[rounds + 1][];
+		int[][] exit = new int[rounds + 1][];
+		int[] targetArrival = new int[rounds + 1];
+		int[] targetEnter = new int[rounds + 1];
+		int[] targetExit = new int[rounds + 1];
+		ready[0] = new int[stations];
+		Arrays.fill(ready[0], Integer.MAX_VALUE);
+		ready[0][origin] = start;
+		enter[0] = new int[stations];
+		Arrays.fill(enter[0], NONE);
+		exit[0] = enter[0];
+		targetArrival[0] = Integer.MAX_VALUE;
+		targetEnter[0] = targetExit[0] = NONE;
+
+		int first = tt.firstDepartingAt(start);
+		int weekday = date.getDayOfWeek().ordinal();
+		int[] boardedAt = new int[tt.tripCount];
+		int round = 1;
+		for (; round <= rounds; round++) {
+			int[] prev = ready[round - 1];
+			int[] cur = ready[round] = prev.clone();
+			int[] in = enter[round] = enter[round - 1].clone();
+			int[] out = exit[round] = exit[round - 1].clone();
+			targetArrival[round] = targetArrival[round - 1];
+			targetEnter[round] = targetEnter[round - 1];
+			targetExit[round] = targetExit[round - 1];
+			Arrays.fill(boardedAt, NONE);
+			boolean improved = false;
+
+			for (int c = first; c < tt.departure.length && tt.departure[c] < targetArrival[round]; c++) {
+				int trip = tt.trip[c];
+				if (boardedAt[trip] == NONE) {
+					if (prev[tt.fromStation[c]] > tt.departure[c] || !tt.runs(trip, weekday)) continue;
+					boardedAt[trip] = c;
+				}
+				int station = tt.toStation[c];
+				int arrival = tt.arrival[c];
+				if (station == target) {
+					if (arrival < targetArrival[round]) {
+						targetArrival[round] = arrival;
+						targetEnter[round] = boardedAt[trip];
+						targetExit[round] = c;
+					}
+				} else if (arrival + minConnectionMinutes < cur[station]) {
+					cur[station] = arrival + minConnectionMinutes;
+					in[station] = boardedAt[trip];
+					out[station] = c;
+					improved = true;
+				}
+			}
+			if (!improved && targetArrival[round] == targetArrival[round - 1]) break;
+		}
+
+		List<JourneyDtos.Journey> journeys = new ArrayList<>();
+		LocalDateTime midnight = date.atStartOfDay();
+		for (int r = 1; r < round; r++) {
+			if (targetArrival[r] >= targetArrival[r - 1]) continue;
+			List<JourneyDtos.Leg> legs = new ArrayList<>();
+			int in = targetEnter[r], out = targetExit[r];
+			for (int k = r - 1; ; k--) {
+				legs.add(tt.leg(in, out, midnight));
+				int station = tt.fromStation[in];
+				if (station == origin || k == 0) break;
+				in = enter[k][station];
+				out = exit[k][station];
+			}
+			Collections.reverse(legs);
+			LocalDateTime departure = legs.get(0).getDepartureTime();
+			LocalDateTime arrival = legs.get(legs.size() - 1).getArrivalTime();
+			journeys.add(JourneyDtos.Journey.builder()
+					.transfers(legs.size() - 1)
+					.departureTime(departure)
+					.arrivalTime(arrival)
+					.durationMinutes(Duration.between(departure, arrival).toMinutes())
+					.legs(legs)
+					.build());
+		}
+		return journeys;
+	}
+
+	// Schedules are rebuilt as a whole, at most once per refresh tick however many changed
+	public void markStale() {
+		stale = true;
+	}
+
+	@Scheduled(fixedDelayString = "${app.search.route-refresh-ms:1000}")
+	public void refreshIfStale() {
+		if (stale) rebuild();
+	}
+
+	@EventListener(ApplicationReadyEvent.class)
+	@Scheduled(initialDelayString = "${app.search.refresh-ms:300000}", fixedDelayString = "${app.search.refresh-ms:300000}")
+	public void rebuild() {
+		stale = false;
+		Timetable built = Timetable.build(trainScheduleRepository.findHalts(), DAY + horizonMinutes);
+		timetable = built;
+		log.debug("Journey timetable rebuilt with {} connections over {} stations", built.departure.length, built.stationCodes.length);
+	}
+
+	private static String code(String station) {
+		return station.trim().toUpperCase(Locale.ROOT);
+	}
+
+	/**
+	 * Connections in departure order as parallel arrays, with minutes counted
+	 * from midnight of the travel date. A trip is one daily run of a train,
+	 * which leaves its first station a whole number of days from that date.
+	 */
+	private static final class Timetable {
+		final String[] stationCodes;
+		final Map<String, Integer> stationIds;
+		final int[] departure;
+		final int[] arrival;
+		final int[] fromStation;
+		final int[] toStation;
+		final int[] trip;
+		final int tripCount;
+		// Index into the train arrays below, and days from the travel date to its first departure, per trip
+		final int[] trainOfTrip;
+		final int[] dayOfTrip;
+		// Bit per DayOfWeek ordinal the train leaves its first station on
+		final int[] runningDays;
+		final Long[] eventIds;
+		final String[] trainNumbers;
+		final String[] trainNames;
+
+		private Timetable(String[] stationCodes, Map<String, Integer> stationIds, int[] departure, int[] arrival, int[] fromStation,
+				int[] toStation, int[] trip, int[] trainOfTrip, int[] dayOfTrip, int[] runningDays, Long[] eventIds, String[] trainNumbers,
+				String[] trainNames) {
+			this.stationCodes = stationCodes;
+			this.stationIds = stationIds;
+			this.departure = departure;
+			this.arrival = arrival;
+			this.fromStation = fromStation;
+			this.toStation = toStation;
+			this.trip = trip;
+			this.tripCount = trainOfTrip.length;
+			this.trainOfTrip = trainOfTrip;
+			this.dayOfTrip = dayOfTrip;
+			this.runningDays = runningDays;
+			this.eventIds = eventIds;
+			this.trainNumbers = trainNumbers;
+			this.trainNames = trainNames;
+		}
+
+		int firstDepartingAt(int minute) {
+			int lo = 0, hi = departure.length;
+			while (lo < hi) {
+				int mid = (lo + hi) >>> 1;
+				if (departure[mid] < minute) lo = mid + 1;
+				else hi = mid;
+			}
+			return lo;
+		}
+
+		boolean runs(int trip, int weekday) {
+			return (runningDays[trainOfTrip[trip]] >>> Math.floorMod(weekday + dayOfTrip[trip], 7) & 1) != 0;
+		}
+
+		JourneyDtos.Leg leg(int in, int out, LocalDateTime midnight) {
+			int train = trainOfTrip[trip[in]];
+			return JourneyDtos.Leg.builder()
+					.eventId(eventIds[train])
+					.trainNumber(trainNumbers[train])
+					.trainName(trainNames[train])
+					.fromStation(stationCodes[fromStation[in]])
+					.toStation(stationCodes[toStation[out]])
+					.departureTime(midnight.plusMinutes(departure[in]))
+					.arrivalTime(midnight.plusMinutes(arrival[out]))
+					.build();
+		}
+
+		// Halts come ordered by train and sequence; only departures before the window end are kept
+		static Timetable build(List<TrainScheduleRepository.HaltView> halts, int windowMinutes) {
+			Map<String, Integer> stationIds = new HashMap<>();
+			List<String> stationCodes = new ArrayList<>();
+			List<Long> eventIds = new ArrayList<>();
+			List<String> trainNumbers = new ArrayList<>();
+			List<String> trainNames = new ArrayList<>();
+			IntList trainOfTrip = new IntList(), dayOfTrip = new IntList(), runningDays = new IntList();
+			IntList dep = new IntList(), arr = new IntList(), from = new IntList(), to = new IntList(), trips = new IntList();
+
+			int i = 0;
+			while (i < halts.size()) {
+				Long eventId = halts.get(i).getEventId();
+				int end = i;
+				while (end < halts.size() && halts.get(end).getEventId().equals(eventId)) end++;
+				List<TrainScheduleRepository.HaltView> route = halts.subList(i, end);
+				i = end;
+
+				// Minutes from midnight of the day the train leaves its first station
+				int[] stations = new int[route.size()];
+				int[] arrivals = new int[route.size()];
+				int[] departures = new int[route.size()];
+				int stops = 0, day = 0, previous = Integer.MIN_VALUE;
+				for (TrainScheduleRepository.HaltView halt : route) {
+					LocalTime a = halt.getArrivalTime() != null ? halt.getArrivalTime() : halt.getDepartureTime();
+					LocalTime d = halt.getDepartureTime() != null ? halt.getDepartureTime() : halt.getArrivalTime();
+					if (a == null || halt.getStationCode() == null) continue;
+					Integer stated = dayOf(halt.getDayNumber());
+					if (stated != null) day = Math.max(day, stated - 1);
+					int arrival = day * DAY + minutes(a);
+					while (arrival < previous) { arrival += DAY; day++; }
+					int departure = day * DAY + minutes(d);
+					while (departure < arrival) { departure += DAY; day++; }
+					previous = departure;
+					stations[stops] = stationIds.computeIfAbsent(code(halt.getStationCode()), k -> {
+						stationCodes.add(k);
+						return stationCodes.size() - 1;
+					});
+					arrivals[stops] = arrival;
+					departures[stops] = departure;
+					stops++;
+				}
+				if (stops < 2) continue;
+
+				int train = eventIds.size();
+				eventIds.add(eventId);
+				trainNumbers.add(route.get(0).getTrainNumber());
+				trainNames.add(route.get(0).getTrainName());
+				int days = 0;
+				for (DayOfWeek d : SeatLayout.parseDays(route.get(0).getRunningDays())) days |= 1 << d.ordinal();
+				runningDays.add(days);
+				for (int offset = -(departures[stops - 2] / DAY) * DAY; offset < windowMinutes; offset += DAY) {
+					int tripId = trainOfTrip.size();
+					boolean used = false;
+					for (int s = 0; s + 1 < stops; s++) {
+						int departure = departures[s] + offset;
+						if (departure < 0 || departure >= windowMinutes || stations[s] == stations[s + 1]) continue;
+						dep.add(departure);
+						arr.add(arrivals[s + 1] + offset);
+						from.add(stations[s]);
+						to.add(stations[s + 1]);
+						trips.add(tripId);
+						used = true;
+					}
+					if (used) {
+						trainOfTrip.add(train);
+						dayOfTrip.add(offset / DAY);
+					}
+				}
+			}
+
+			// By departure, then in the order added, so hops of one train leaving in the same minute stay in route order
+			int n = dep.size();
+			long[] order = new long[n];
+			for (int c = 0; c < n; c++) order[c] = ((long) dep.get(c) << 32) | c;
+			Arrays.sort(order);
+			int[] departure = new int[n], arrival = new int[n], fromStation = new int[n], toStation = new int[n], trip = new int[n];
+			for (int c = 0; c < n; c++) {
+				int src = (int) order[c];
+				departure[c] = dep.get(src);
+				arrival[c] = arr.get(src);
+				fromStation[c] = from.get(src);
+				toStation[c] = to.get(src);
+				trip[c] = trips.get(src);
+			}
+			return new Timetable(stationCodes.toArray(String[]::new), Map.copyOf(stationIds), departure, arrival, fromStation, toStation,
+					trip, trainOfTrip.toArray(), dayOfTrip.toArray(), runningDays.toArray(), eventIds.toArray(Long[]::new),
+					trainNumbers.toArray(String[]::new), trainNames.toArray(String[]::new));
+		}
+
+		private static int minutes(LocalTime time) {
+			return time.getHour() * 60 + time.getMinute();
+		}
+
+		private static Integer dayOf(String dayNumber) {
+			if (dayNumber == null) return null;
+			String digits = dayNumber.replaceAll("\\D", "");
+			return digits.isEmpty() || digits.length() > 3 ? null : Integer.valueOf(digits);
+		}
+	}
+
+	private static final class IntList {
+		private int[] values = new int[64];
+		private int size;
+
+		void add(int value) {
+			if (size == values.length) values = Arrays.copyOf(values, size * 2);
+			values[size++] = value;
+		}
+
+		int get(int index) {
+			return values[index];
+		}
+
+		int size() {
+			return size;
+		}
+
+		int[] toArray() {
+			return Arrays.copyOf(values, size);
+		}
+	}
+}
@@ -10,6 +10,7 @@ import org.springframework.stereotype.Service;
 import javax.crypto.Mac;
 import javax.crypto.spec.SecretKeySpec;
 import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
 
 @Service
 @RequiredArgsConstructor
@@ -71,7 +72,8 @@ public class PaymentService {
         return keyId;
     }
 
-    public boolean verifyWebhookSignature(String payload, String signature) throws Exception {
+    // Checks the signature over the body exactly as it was received
+    public boolean verifyWebhookSignature(byte[] payload, String signature) throws Exception {
         if (!enabled) {
             return true;
         }
@@ -81,10 +83,10 @@ public class PaymentService {
         Mac mac = Mac.getInstance("HmacSHA256");
         SecretKeySpec secretKey = new SecretKeySpec(webhookSecret.getBytes(StandardCharsets.UTF_8), "HmacSHA256");
         mac.init(secretKey);
-        byte[] hmac = mac.doFinal(payload.getBytes(StandardCharsets.UTF_8));
+        byte[] hmac = mac.doFinal(payload);
         StringBuilder sb = new StringBuilder();
         for (byte b : hmac) { sb.append(String.format("%02x", b)); }
         String expected = sb.toString();
-        return expected.equals(signature);
+        return signature != null && MessageDigest.isEqual(expected.getBytes(StandardCharsets.UTF_8), signature.getBytes(StandardCharsets.UTF_8));
     }
 }
\ No newline at end of file
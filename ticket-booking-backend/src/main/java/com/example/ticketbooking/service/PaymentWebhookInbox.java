@@ -0,0 +1,95 @@
+package com.example.ticketbooking.service;
+
+import com.example.ticketbooking.model.PaymentWebhookEvent;
+import com.example.ticketbooking.repository.PaymentWebhookEventRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+
+/**
+ * Durable inbox for payment gateway webhooks. A verified webhook is stored
+ * once per payment id and acknowledged; a scheduled worker drains the inbox in
+ * batches and confirms each booking the same way the client's verify call
+ * does. An event that keeps failing is parked as FAILED after a fixed number
+ * of attempts.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class PaymentWebhookInbox {
+
+	private final PaymentWebhookEventRepository eventRepository;
+	private final BookingService bookingService;
+	private final TransactionTemplate transactionTemplate;
+	private final ObjectMapper objectMapper;
+
+	@Value("${app.payment.webhook.batch-size:100}")
+	private int batchSize;
+
+	@Value("${app.payment.webhook.max-attempts:5}")
+	private int maxAttempts;
+
+	// Stores the webhook; returns false if this payment was already received
+	public boolean accept(String body) {
+		JsonNode root;
+		try {
+			root = objectMapper.readTree(body);
+		} catch (JsonProcessingException e) {
+			throw new IllegalArgumentException("Webhook body is not JSON");
+		}
+		JsonNode payment = root.path("payload").path("payment").path("entity");
+		String paymentId = payment.path("id").asText(null);
+		String orderId = payment.path("order_id").asText(null);
+		if (paymentId == null || orderId == null) {
+			throw new IllegalArgumentException("Webhook carries no payment or order id");
+		}
+		if (eventRepository.existsByPaymentId(paymentId)) return false;
+		try {
+			eventRepository.save(PaymentWebhookEvent.builder()
+					.paymentId(paymentId)
+					.orderId(orderId)
+					.eventType(root.path("event").asText(null))
+					.payload(body)
+					.status(PaymentWebhookEvent.Status.PENDING)
+					.receivedAt(OffsetDateTime.now())
+					.build());
+			return true;
+		} catch (DataIntegrityViolationException e) {
+			// A retry of the same webhook won the insert
+			return false;
+		}
+	}
+
+	@Scheduled(fixedDelayString = "${app.payment.webhook.poll-ms:500}")
+	public void drain() {
+		List<Long> pending = eventRepository.findPendingIds(Limit.of(batchSize));
+		pending.forEach(this::process);
+	}
+
+	private void process(Long id) {
+		try {
+			transactionTemplate.executeWithoutResult(tx -> {
+				if (eventRepository.markProcessed(id, OffsetDateTime.now()) == 0) return;
+				PaymentWebhookEvent event = eventRepository.findById(id).orElseThrow();
+				if ("payment.failed".equals(event.getEventType())) return;
+				bookingService.confirmFromWebhook(event.getOrderId(), event.getPaymentId());
+			});
+		} catch (RuntimeException e) {
+			log.warn("Payment webhook {} failed: {}", id, e.getMessage());
+			String error = String.valueOf(e.getMessage());
+			transactionTemplate.executeWithoutResult(tx -> eventRepository.recordFailure(id,
+					error.length() > 1000 ? error.substring(0, 1000) : error, maxAttempts));
+		}
+	}
+}
@@ -0,0 +1,201 @@
+package com.example.ticketbooking.service;
+
+import com.example.ticketbooking.model.PnrBlock;
+import com.example.ticketbooking.repository.PNRRepository;
+import com.example.ticketbooking.repository.PnrBlockRepository;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+import java.net.InetAddress;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Hands out 10-digit PNR numbers: nine digits of a scrambled serial followed
+ * by a Luhn check digit. Serials come in blocks reserved from the database,
+ * one row per block, so nodes never overlap and only go to the database once
+ * per block. The serial is scrambled with a Feistel permutation keyed from the
+ * configured secret through PBKDF2, so consecutive bookings get unrelated
+ * numbers while distinct serials still map to distinct PNRs. Within a block
+ * numbers are taken with a single atomic increment. The next block is
+ * reserved in the background while the current one is in use, so callers
+ * inside a transaction do not need a second connection. Numbers of a block
+ * that are already taken, e.g. by PNRs issued before this scheme, are looked
+ * up once when the block is reserved and skipped.
+ */
+@Service
+public class PnrAllocator {
+
+	private static final int BLOCK_SIZE = 1000;
+	private static final int SERIAL_DIGITS = 9;
+	private static final long SERIAL_SPACE = 1_000_000_000L;
+	private static final int HALF_BITS = 15;
+	private static final int HALF_MASK = (1 << HALF_BITS) - 1;
+	private static final int ROUNDS = 4;
+	private static final byte[] KEY_SALT = "pnr-serial-permutation".getBytes(StandardCharsets.UTF_8);
+	private static final int KEY_ITERATIONS = 100_000;
+
+	private record Block(long number, AtomicInteger next, Set<String> taken) {}
+
+	private final PnrBlockRepository pnrBlockRepository;
+	private final PNRRepository pnrRepository;
+	private final TransactionTemplate transactionTemplate;
+	private final ExecutorService executor;
+	private final long[] roundKeys;
+	private final String node;
+	private final AtomicReference<Block> current = new AtomicReference<>(new Block(-1, new AtomicInteger(BLOCK_SIZE), Set.of()));
+	private CompletableFuture<Block> spare;
+
+	public PnrAllocator(PnrBlockRepository pnrBlockRepository, PNRRepository pnrRepository,
+			TransactionTemplate transactionTemplate, @Qualifier("pnrBlockExecutor") ExecutorService executor,
+			@Value("${app.booking.pnr.secret:ticket-booking}") String secret) {
+		this.pnrBlockRepository = pnrBlockRepository;
+		this.pnrRepository = pnrRepository;
+		this.transactionTemplate = transactionTemplate;
+		this.executor = executor;
+		this.roundKeys = roundKeys(secret);
+		this.node = nodeName();
+	}
+
+	@EventListener(ApplicationReadyEvent.class)
+	public synchronized void prefetch() {
+		if (spare == null) spare = reserveAsync();
+	}
+
+	public String next() {
+		while (true) {
+			Block block = current.get();
+			int index = block.next().getAndIncrement();
+			if (index < BLOCK_SIZE) {
+				String pnr = pnrOf(block.number(), index);
+				if (!block.taken().contains(pnr)) return pnr;
+				continue;
+			}
+			swapBlock(block);
+		}
+	}
+
+	private synchronized void swapBlock(Block exhausted) {
+		if (current.get() != exhausted) return;
+		CompletableFuture<Block> ready = spare == null || spare.isCompletedExceptionally() ? reserveAsync() : spare;
+		spare = reserveAsync();
+		try {
+			current.set(ready.join());
+		} catch (CompletionException e) {
+			throw new IllegalStateException("Could not reserve a PNR block", e.getCause());
+		}
+	}
+
+	// Runs on its own thread, so the block commits on its own even if the booking that needed it rolls back
+	private CompletableFuture<Block> reserveAsync() {
+		return CompletableFuture.supplyAsync(() -> {
+			long number = transactionTemplate.execute(tx -> pnrBlockRepository.save(
+					PnrBlock.builder().node(node).reservedAt(OffsetDateTime.now()).build())).getId();
+			List<String> pnrs = new ArrayList<>(BLOCK_SIZE);
+			for (int index = 0; index < BLOCK_SIZE; index++) pnrs.add(pnrOf(number, index));
+			return new Block(number, new AtomicInteger(), Set.copyOf(pnrRepository.findExistingPnrNumbers(pnrs)));
+		}, executor);
+	}
+
+	private String pnrOf(long block, int index) {
+		return encode(permute(block * BLOCK_SIZE + index, roundKeys));
+	}
+
+	static String encode(long serial) {
+		String digits = String.format("%0" + SERIAL_DIGITS + "d", serial);
+		return digits + checkDigit(digits);
+	}
+
+	// Cycle-walks a 30-bit Feistel permutation until the result fits in nine digits
+	static long permute(long serial, long[] keys) {
+		if (serial < 0 || serial >= SERIAL_SPACE) throw new IllegalStateException("PNR serials exhausted");
+		long value = serial;
+		do {
+			int left = (int) (value >>> HALF_BITS) & HALF_MASK;
+			int right = (int) value & HALF_MASK;
+			for (int round = 0; round < ROUNDS; round++) {
+				int next = left ^ round(keys[round], right);
+				left = right;
+				right = next;
+			}
+			value = ((long) left << HALF_BITS) | right;
+		} while (value >= SERIAL_SPACE);
+		return value;
+	}
+
+	// Inverse of permute: recovers the serial, and so the block, a PNR was issued from
+	static long unpermute(long value, long[] keys) {
+		if (value < 0 || value >= SERIAL_SPACE) throw new IllegalArgumentException("Not a PNR serial: " + value);
+		long serial = value;
+		do {
+			int left = (int) (serial >>> HALF_BITS) & HALF_MASK;
+			int right = (int) serial & HALF_MASK;
+			for (int round = ROUNDS - 1; round >= 0; round--) {
+				int previous = right ^ round(keys[round], left);
+				right = left;
+				left = previous;
+			}
+			serial = ((long) left << HALF_BITS) | right;
+		} while (serial >= SERIAL_SPACE);
+		return serial;
+	}
+
+	private static int round(long key, int half) {
+		return (int) (mix(key + half) & HALF_MASK);
+	}
+
+	private static long mix(long z) {
+		z = (z ^ (z >>> 33)) * 0xFF51AFD7ED558CCDL;
+		z = (z ^ (z >>> 33)) * 0xC4CEB9FE1A85EC53L;
+		return z ^ (z >>> 33);
+	}
+
+	static int checkDigit(String digits) {
+		int sum = 0;
+		for (int i = digits.length() - 1, pos = 0; i >= 0; i--, pos++) {
+			int d = digits.charAt(i) - '0';
+			if (pos % 2 == 0) {
+				d *= 2;
+				if (d > 9) d -= 9;
+			}
+			sum += d;
+		}
+		return (10 - sum % 10) % 10;
+	}
+
+	static long[] roundKeys(String secret) {
+		try {
+			PBEKeySpec spec = new PBEKeySpec(secret.toCharArray(), KEY_SALT, KEY_ITERATIONS, ROUNDS * Long.SIZE);
+			ByteBuffer derived = ByteBuffer.wrap(SecretKeyFactory.getInstance("PBKDF2WithHmacSHA256").generateSecret(spec).getEncoded());
+			long[] keys = new long[ROUNDS];
+			for (int round = 0; round < ROUNDS; round++) keys[round] = derived.getLong();
+			return keys;
+		} catch (GeneralSecurityException e) {
+			throw new IllegalStateException("Could not derive the PNR key", e);
+		}
+	}
+
+	private static String nodeName() {
+		try {
+			return InetAddress.getLocalHost().getHostName();
+		} catch (Exception e) {
+			return "unknown";
+		}
+	}
+}
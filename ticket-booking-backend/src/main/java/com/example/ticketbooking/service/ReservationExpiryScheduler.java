@@ -3,40 +3,111 @@ package com.example.ticketbooking.service;
 import com.example.ticketbooking.model.Booking;
 import com.example.ticketbooking.model.Seat;
 import com.example.ticketbooking.repository.BookingRepository;
-import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.OffsetDateTime;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 
+/**
+ * Expires unpaid reservations at their deadline. Deadlines sit in a
+ * {@link ReservationTimingWheel} that is filled from the bookings table on
+ * startup and fed by new holds; each tick expires whatever fell due with a few
+ * set-based statements. A slow sweep picks up holds this node was not told
+ * about, e.g. ones made on another instance.
+ */
 @Component
-@RequiredArgsConstructor
+@Slf4j
 public class ReservationExpiryScheduler {
 
 	private final BookingRepository bookingRepository;
 	private final SeatUpdateBroadcaster broadcaster;
+	private final SeatInventoryService seatInventoryService;
+	private final TransactionTemplate transactionTemplate;
+	private final ReservationTimingWheel wheel;
+	private final int batchSize;
 
-	@Scheduled(fixedDelay = 60000)
-	@Transactional
-	public void expireOldReservations() {
-		List<Booking> expired = bookingRepository.findByStatusAndReservationExpiresAtBefore(Booking.Status.PENDING_PAYMENT, OffsetDateTime.now());
-		if (expired.isEmpty()) return;
-
-		Map<Long, List<Seat>> eventToSeats = new HashMap<>();
-		for (Booking b : expired) {
-			b.setStatus(Booking.Status.EXPIRED);
-			for (Seat s : b.getSeats()) {
-				s.setStatus(Seat.Status.AVAILABLE);
-				eventToSeats.computeIfAbsent(b.getEvent().getId(), k -> new ArrayList<>()).add(s);
+	public ReservationExpiryScheduler(BookingRepository bookingRepository, SeatUpdateBroadcaster broadcaster,
+			SeatInventoryService seatInventoryService, TransactionTemplate transactionTemplate,
+			@Value("${app.booking.expiry.tick-ms:200}") long tickMillis,
+			@Value("${app.booking.expiry.batch-size:500}") int batchSize) {
+		this.bookingRepository = bookingRepository;
+		this.broadcaster = broadcaster;
+		this.seatInventoryService = seatInventoryService;
+		this.transactionTemplate = transactionTemplate;
+		this.wheel = new ReservationTimingWheel(tickMillis, System.currentTimeMillis());
+		this.batchSize = batchSize;
+	}
+
+	// Starts the countdown once the booking is committed, or right away without a transaction
+	public void scheduleAfterCommit(Long bookingId, OffsetDateTime expiresAt) {
+		long deadline = expiresAt.toInstant().toEpochMilli();
+		if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+			wheel.schedule(bookingId, deadline);
+			return;
+		}
+		TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+			@Override
+			public void afterCommit() {
+				wheel.schedule(bookingId, deadline);
+			}
+		});
+	}
+
+	@EventListener(ApplicationReadyEvent.class)
+	public void rebuild() {
+		List<BookingRepository.ExpiryView> pending = bookingRepository.findExpiries(Booking.Status.AWAITING_PAYMENT);
+		pending.forEach(p -> wheel.schedule(p.getId(), p.getReservationExpiresAt().toInstant().toEpochMilli()));
+		log.info("Reservation expiry scheduled for {} bookings", pending.size());
+	}
+
+	@Scheduled(fixedDelayString = "${app.booking.expiry.tick-ms:200}")
+	public void tick() {
+		List<Long> due = wheel.advance(System.currentTimeMillis());
+		for (int i = 0; i < due.size(); i += batchSize) {
+			List<Long> batch = due.subList(i, Math.min(due.size(), i + batchSize));
+			try {
+				expire(batch);
+			} catch (RuntimeException e) {
+				log.warn("Expiring {} reservations failed, retrying on the next tick", batch.size(), e);
+				long now = System.currentTimeMillis();
+				batch.forEach(id -> wheel.schedule(id, now));
 			}
 		}
-		bookingRepository.saveAll(expired);
+	}
 
-		eventToSeats.forEach((eventId, seats) -> broadcaster.broadcastSeatStatus(eventId, seats));
+	@Scheduled(fixedDelayString = "${app.booking.expiry.sweep-ms:300000}", initialDelayString = "${app.booking.expiry.sweep-ms:300000}")
+	public void sweep() {
+		long now = System.currentTimeMillis();
+		bookingRepository.findIdsDueBefore(Booking.Status.AWAITING_PAYMENT, OffsetDateTime.now())
+				.forEach(id -> wheel.schedule(id, now));
+	}
+
+	// Expires the given bookings if they are still unpaid and past their deadline; returns how many were expired
+	public int expire(List<Long> bookingIds) {
+		Integer expired = transactionTemplate.execute(tx -> {
+			List<Long> ids = bookingRepository.lockDue(bookingIds, Booking.Status.AWAITING_PAYMENT, OffsetDateTime.now())
+					.stream().map(Booking::getId).toList();
+			if (ids.isEmpty()) return 0;
+			List<Booking> bookings = bookingRepository.findWithSeatsByIdIn(ids);
+			bookingRepository.transitionAll(ids, Booking.Status.AWAITING_PAYMENT, Booking.Status.EXPIRED);
+			for (Booking b : bookings) {
+				Long eventId = b.getEvent().getId();
+				List<Seat> seats = new ArrayList<>(b.getSeats());
+				long legs = seatInventoryService.heldLegs(eventId, b.getFromStop(), b.getToStop());
+				seatInventoryService.releaseAfterCommit(eventId, b.getJourneyDate(), legs, seats.stream().map(Seat::getId).toList());
+				broadcaster.broadcastSeatStatus(eventId, b.getJourneyDate(), seats);
+			}
+			return ids.size();
+		});
+		return expired == null ? 0 : expired;
 	}
-}
\ No newline at end of file
+}
@@ -0,0 +1,104 @@
+package com.example.ticketbooking.service;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Hierarchical timing wheel of reservation deadlines. Level 0 has one slot
+ * per tick; each higher level has one slot per full turn of the level below
+ * and hands its entries down when the lower levels wrap, so scheduling and
+ * expiring are constant time however far away the deadline is. Deadlines past
+ * the top level are parked in its furthest slot and placed again on the way
+ * down. A booking has at most one live deadline; an entry that was replaced
+ * by a later schedule is dropped when its slot comes up.
+ */
+public class ReservationTimingWheel {
+
+	private static final int SLOT_BITS = 6;
+	private static final int SLOTS = 1 << SLOT_BITS;
+	private static final int LEVELS = 4;
+
+	private record Entry(long bookingId, long tick) {}
+
+	private final long tickMillis;
+	private final ArrayDeque<Entry>[][] wheels;
+	private final Map<Long, Long> deadlines = new HashMap<>();
+	private final List<Long> due = new ArrayList<>();
+	private long currentTick;
+
+	@SuppressWarnings("unchecked")
+	public ReservationTimingWheel(long tickMillis, long nowMillis) {
+		if (tickMillis <= 0) throw new IllegalArgumentException("Tick must be positive");
+		this.tickMillis = tickMillis;
+		this.currentTick = nowMillis / tickMillis;
+		this.wheels = new ArrayDeque[LEVELS][SLOTS];
+		for (ArrayDeque<Entry>[] level : wheels) {
+			for (int s = 0; s < SLOTS; s++) level[s] = new ArrayDeque<>();
+		}
+	}
+
+	// Deadlines already reached are returned by the next advance
+	public synchronized void schedule(long bookingId, long deadlineMillis) {
+		long tick = Math.floorDiv(deadlineMillis + tickMillis - 1, tickMillis);
+		deadlines.put(bookingId, tick);
+		place(new Entry(bookingId, tick));
+	}
+
+	public synchronized int size() {
+		return deadlines.size();
+	}
+
+	// Moves the wheel up to the given time and returns the bookings whose deadline has passed
+	public synchronized List<Long> advance(long nowMillis) {
+		long target = nowMillis / tickMillis;
+		while (currentTick < target) {
+			currentTick++;
+			int top = 0;
+			while (top + 1 < LEVELS && (currentTick & ((1L << (SLOT_BITS * (top + 1))) - 1)) == 0) top++;
+			// Higher levels first, so entries handed down land in slots that are still ahead
+			for (int level = top; level > 0; level--) {
+				ArrayDeque<Entry> slot = wheels[level][slotIndex(currentTick, level)];
+				List<Entry> cascading = new ArrayList<>(slot);
+				slot.clear();
+				cascading.forEach(this::place);
+			}
+			ArrayDeque<Entry> slot = wheels[0][slotIndex(currentTick, 0)];
+			for (Entry entry : slot) expire(entry);
+			slot.clear();
+		}
+		List<Long> result = new ArrayList<>(due);
+		due.clear();
+		return result;
+	}
+
+	private void place(Entry entry) {
+		long delta = entry.tick() - currentTick;
+		if (delta <= 0) {
+			expire(entry);
+			return;
+		}
+		for (int level = 0; level < LEVELS; level++) {
+			if (delta < 1L << (SLOT_BITS * (level + 1))) {
+				wheels[level][slotIndex(entry.tick(), level)].add(entry);
+				return;
+			}
+		}
+		long parked = currentTick + (1L << (SLOT_BITS * LEVELS)) - 1;
+		wheels[LEVELS - 1][slotIndex(parked, LEVELS - 1)].add(entry);
+	}
+
+	private void expire(Entry entry) {
+		Long tick = deadlines.get(entry.bookingId());
+		if (tick != null && tick == entry.tick()) {
+			deadlines.remove(entry.bookingId());
+			due.add(entry.bookingId());
+		}
+	}
+
+	private static int slotIndex(long tick, int level) {
+		return (int) (tick >>> (SLOT_BITS * level)) & (SLOTS - 1);
+	}
+}
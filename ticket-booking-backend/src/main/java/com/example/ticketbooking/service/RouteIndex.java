@@ -0,0 +1,125 @@
+package com.example.ticketbooking.service;
+
+import com.example.ticketbooking.repository.TrainScheduleRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Trains serving each ordered pair of stations, precomputed from the halts of
+ * every schedule, so the trains between two stations are one hash lookup
+ * wherever along their routes the two stations lie. A train with n halts adds
+ * n(n-1)/2 pairs. The index is built at startup and rebuilt periodically;
+ * trains whose schedule changed here are re-indexed shortly after the change
+ * commits.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class RouteIndex {
+
+	public record Route(Long eventId, String trainNumber, String trainName, String fromStation, String toStation,
+			Integer fromSequence, Integer toSequence, LocalTime departureTime, LocalTime arrivalTime) {}
+
+	private record StationPair(String from, String to) {}
+
+	private final TrainScheduleRepository trainScheduleRepository;
+
+	// Lists are never modified once published, so lookups need no lock
+	private volatile Map<StationPair, List<Route>> routes = new ConcurrentHashMap<>();
+	private Map<Long, List<StationPair>> pairsByEvent = new HashMap<>();
+	private final Set<Long> changed = ConcurrentHashMap.newKeySet();
+
+	public List<Route> between(String fromStation, String toStation) {
+		if (fromStation == null || toStation == null) return List.of();
+		return routes.getOrDefault(new StationPair(code(fromStation), code(toStation)), List.of());
+	}
+
+	// Re-indexed on the next refresh; called once the schedule change has committed
+	public void markChanged(Long eventId) {
+		changed.add(eventId);
+	}
+
+	@Scheduled(fixedDelayString = "${app.search.route-refresh-ms:1000}")
+	public void refreshChanged() {
+		for (Long eventId : List.copyOf(changed)) {
+			changed.remove(eventId);
+			List<TrainScheduleRepository.HaltView> halts = trainScheduleRepository.findHaltsByEventId(eventId);
+			synchronized (this) {
+				unindex(routes, pairsByEvent, eventId);
+				index(routes, pairsByEvent, eventId, halts);
+			}
+		}
+	}
+
+	public synchronized void remove(Long eventId) {
+		unindex(routes, pairsByEvent, eventId);
+	}
+
+	@EventListener(ApplicationReadyEvent.class)
+	@Scheduled(initialDelayString = "${app.search.refresh-ms:300000}", fixedDelayString = "${app.search.refresh-ms:300000}")
+	public void rebuild() {
+		Map<Long, List<TrainScheduleRepository.HaltView>> haltsByEvent = trainScheduleRepository.findHalts().stream()
+				.collect(Collectors.groupingBy(TrainScheduleRepository.HaltView::getEventId, LinkedHashMap::new, Collectors.toList()));
+		Map<StationPair, List<Route>> built = new ConcurrentHashMap<>();
+		Map<Long, List<StationPair>> builtPairs = new HashMap<>();
+		haltsByEvent.forEach((eventId, halts) -> index(built, builtPairs, eventId, halts));
+		synchronized (this) {
+			routes = built;
+			pairsByEvent = builtPairs;
+		}
+		log.debug("Route index rebuilt with {} station pairs over {} trains", built.size(), haltsByEvent.size());
+	}
+
+	private static void index(Map<StationPair, List<Route>> routes, Map<Long, List<StationPair>> pairsByEvent,
+			Long eventId, List<TrainScheduleRepository.HaltView> halts) {
+		List<StationPair> pairs = new ArrayList<>();
+		for (int i = 0; i < halts.size(); i++) {
+			TrainScheduleRepository.HaltView from = halts.get(i);
+			if (from.getStationCode() == null) continue;
+			for (int j = i + 1; j < halts.size(); j++) {
+				TrainScheduleRepository.HaltView to = halts.get(j);
+				if (to.getStationCode() == null || to.getStationCode().equalsIgnoreCase(from.getStationCode())) continue;
+				StationPair pair = new StationPair(code(from.getStationCode()), code(to.getStationCode()));
+				Route route = new Route(eventId, from.getTrainNumber(), from.getTrainName(), pair.from(), pair.to(),
+						from.getSequenceNumber(), to.getSequenceNumber(), from.getDepartureTime(), to.getArrivalTime());
+				routes.compute(pair, (k, existing) -> {
+					List<Route> list = existing == null ? new ArrayList<>(1) : new ArrayList<>(existing);
+					list.add(route);
+					return List.copyOf(list);
+				});
+				pairs.add(pair);
+			}
+		}
+		if (!pairs.isEmpty()) pairsByEvent.put(eventId, pairs);
+	}
+
+	private static void unindex(Map<StationPair, List<Route>> routes, Map<Long, List<StationPair>> pairsByEvent, Long eventId) {
+		List<StationPair> pairs = pairsByEvent.remove(eventId);
+		if (pairs == null) return;
+		for (StationPair pair : pairs) {
+			routes.computeIfPresent(pair, (k, list) -> {
+				List<Route> kept = list.stream().filter(r -> !r.eventId().equals(eventId)).toList();
+				return kept.isEmpty() ? null : kept;
+			});
+		}
+	}
+
+	private static String code(String station) {
+		return station.trim().toUpperCase(Locale.ROOT);
+	}
+}
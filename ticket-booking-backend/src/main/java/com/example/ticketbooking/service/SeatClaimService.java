@@ -0,0 +1,170 @@
+package com.example.ticketbooking.service;
+
+import com.example.ticketbooking.model.Seat;
+import com.example.ticketbooking.repository.BookingRepository;
+import com.example.ticketbooking.repository.SeatRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+/**
+ * Makes the database the judge of seat conflicts when several instances sell
+ * the same train. In MEMORY mode the in-process inventory alone decides,
+ * which is only safe on a single node. PESSIMISTIC locks the seat rows and
+ * then checks the active bookings; OPTIMISTIC checks first and bumps each
+ * seat's version with a conditional update, retrying the whole hold with
+ * jittered backoff when another buyer got there between the read and the write.
+ * Rows are always locked in seat id order. Auto-assigned seats are claimed
+ * with SKIP LOCKED in both database modes.
+ */
+@Service
+@Slf4j
+public class SeatClaimService {
+
+	public enum Mode { MEMORY, PESSIMISTIC, OPTIMISTIC }
+
+	private final SeatRepository seatRepository;
+	private final BookingRepository bookingRepository;
+	private final SeatInventoryService seatInventoryService;
+	private final TransactionTemplate defaultTransaction;
+	private final TransactionTemplate readCommittedTransaction;
+
+	@Value("${app.booking.claim.mode:MEMORY}")
+	private Mode mode;
+
+	@Value("${app.booking.claim.max-attempts:5}")
+	private int maxAttempts;
+
+	@Value("${app.booking.claim.backoff-ms:5}")
+	private long backoffMs;
+
+	public SeatClaimService(SeatRepository seatRepository, BookingRepository bookingRepository,
+			SeatInventoryService seatInventoryService, PlatformTransactionManager transactionManager) {
+		this.seatRepository = seatRepository;
+		this.bookingRepository = bookingRepository;
+		this.seatInventoryService = seatInventoryService;
+		this.defaultTransaction = new TransactionTemplate(transactionManager);
+		// Conflict checks must see bookings committed after the transaction began, not its first snapshot
+		this.readCommittedTransaction = new TransactionTemplate(transactionManager);
+		this.readCommittedTransaction.setIsolationLevel(TransactionDefinition.ISOLATION_READ_COMMITTED);
+	}
+
+	public Mode getMode() {
+		return mode;
+	}
+
+	/**
+	 * Runs a hold in its own transaction, again after a short randomised pause
+	 * if an optimistic claim lost a race, up to the configured attempts.
+	 */
+	public <T> T inTransaction(Supplier<T> hold) {
+		TransactionTemplate transaction = mode == Mode.MEMORY ? defaultTransaction : readCommittedTransaction;
+		for (int attempt = 1; ; attempt++) {
+			try {
+				return transaction.execute(tx -> hold.get());
+			} catch (OptimisticLockingFailureException e) {
+				if (attempt >= maxAttempts) throw e;
+				log.debug("Seat claim lost a race (attempt {}/{}): {}", attempt, maxAttempts, e.getMessage());
+				pause(attempt);
+			}
+		}
+	}
+
+	// Claims the seats for the journey date and legs in the database; a no-op in MEMORY mode
+	public void claim(Long eventId, LocalDate journeyDate, long legs, Collection<Long> seatIds) {
+		if (mode == Mode.MEMORY || seatIds.isEmpty()) return;
+		if (mode == Mode.PESSIMISTIC) {
+			seatRepository.lockSeatsByIds(seatIds);
+			ensureFree(eventId, journeyDate, legs, seatIds);
+			return;
+		}
+		List<SeatRepository.SeatVersionView> versions = seatRepository.findVersionsByIdIn(seatIds);
+		ensureFree(eventId, journeyDate, legs, seatIds);
+		for (SeatRepository.SeatVersionView seat : versions) {
+			if (seatRepository.bumpVersion(seat.getId(), seat.getVersion()) == 0) {
+				throw new OptimisticLockingFailureException("Seat was claimed concurrently: " + seat.getId());
+			}
+		}
+	}
+
+	/**
+	 * Picks and locks {@code count} seats that are free between the two stops,
+	 * from the given coach, or from coaches of the given class, or from the
+	 * whole rake, in rake order. Seats other buyers are claiming right now are
+	 * passed over instead of waited for. Returns the seat ids, or an empty list
+	 * if not enough seats are free.
+	 */
+	public List<Long> claimAvailable(Long eventId, LocalDate journeyDate, Integer fromStop, Integer toStop,
+			String classType, Long coachId, int count) {
+		if (count <= 0) return List.of();
+		SeatLayout layout = seatInventoryService.layout(eventId);
+		LocalDate date = seatInventoryService.resolveDate(eventId, journeyDate);
+		long legs = layout.legMask(fromStop, toStop);
+		List<Long> claimed = new ArrayList<>(count);
+		for (int c = 0; c < layout.coachCount() && claimed.size() < count; c++) {
+			boolean wanted = coachId != null ? Objects.equals(layout.coachId(c), coachId)
+					: classType == null || classType.isBlank() || classType.equalsIgnoreCase(layout.coachClass(c));
+			if (wanted) {
+				claimed.addAll(claimInCoach(eventId, layout.coachId(c), date, date.equals(layout.getBaseDate()),
+						fromStop, toStop, legs, count - claimed.size()));
+			}
+		}
+		return claimed.size() < count ? List.of() : claimed;
+	}
+
+	private List<Long> claimInCoach(Long eventId, Long coachId, LocalDate date, boolean undated,
+			Integer fromStop, Integer toStop, long legs, int count) {
+		List<Long> claimed = new ArrayList<>(count);
+		long afterId = Long.MIN_VALUE;
+		while (claimed.size() < count) {
+			List<Long> ids = seatRepository.claimAvailable(eventId, coachId, date, undated, SeatInventoryService.ACTIVE,
+					fromStop == null ? Integer.MIN_VALUE : fromStop, toStop == null ? Integer.MAX_VALUE : toStop,
+					afterId, Limit.of(count - claimed.size())).stream().map(Seat::getId).toList();
+			if (ids.isEmpty()) break;
+			// The query compares exact stops, but long routes share leg bits in memory, and a seat whose lock we
+			// waited for may have been sold by its holder; pass over what the leg masks call taken and query past it
+			List<Long> taken = takenSeats(eventId, date, legs, ids);
+			ids.stream().filter(id -> !taken.contains(id)).forEach(claimed::add);
+			afterId = ids.get(ids.size() - 1);
+		}
+		return claimed;
+	}
+
+	private void ensureFree(Long eventId, LocalDate journeyDate, long legs, Collection<Long> seatIds) {
+		List<Long> taken = takenSeats(eventId, journeyDate, legs, seatIds);
+		if (!taken.isEmpty()) throw new IllegalStateException("Seat not available: " + taken.get(0));
+	}
+
+	private List<Long> takenSeats(Long eventId, LocalDate journeyDate, long legs, Collection<Long> seatIds) {
+		SeatLayout layout = seatInventoryService.layout(eventId);
+		LocalDate date = seatInventoryService.resolveDate(eventId, journeyDate);
+		boolean undated = date.equals(layout.getBaseDate());
+		return bookingRepository.findHeldSeatsByIds(eventId, date, undated, SeatInventoryService.ACTIVE, seatIds).stream()
+				.filter(held -> (SeatInventoryService.heldLegs(layout, held) & legs) != 0)
+				.map(BookingRepository.HeldSeatView::getSeatId)
+				.toList();
+	}
+
+	private void pause(int attempt) {
+		long ceiling = backoffMs << Math.min(attempt - 1, 10);
+		try {
+			Thread.sleep(ThreadLocalRandom.current().nextLong(ceiling / 2, ceiling + 1));
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while retrying a seat claim");
+		}
+	}
+}
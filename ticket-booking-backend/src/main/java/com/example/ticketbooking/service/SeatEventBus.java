@@ -0,0 +1,32 @@
+package com.example.ticketbooking.service;
+
+import com.example.ticketbooking.model.Seat;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Carries seat state changes between instances of the application, so each
+ * one keeps its in-memory inventory and its seat streams in step with bookings
+ * taken on the others. Changes are published by the transaction that makes
+ * them; listeners only hear about changes made by other instances.
+ */
+public interface SeatEventBus {
+
+	// Seats moved between two states on the given legs; a change without states means the event's rake or route changed
+	record SeatChange(Long eventId, LocalDate journeyDate, long legs, Seat.Status from, Seat.Status to, List<Long> seatIds) {
+
+		static SeatChange layoutChanged(Long eventId) {
+			return new SeatChange(eventId, null, 0L, null, null, List.of());
+		}
+
+		public boolean isLayoutChange() {
+			return from == null;
+		}
+	}
+
+	void publish(SeatChange change);
+
+	void subscribe(Consumer<SeatChange> listener);
+}
@@ -0,0 +1,217 @@
+package com.example.ticketbooking.service;
+
+import com.example.ticketbooking.model.Seat;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * In-process seat states of one event on one journey date. Each seat is a long
+ * whose low half marks the legs it is held on and whose high half marks the
+ * legs it is sold on, so a berth freed at an intermediate station stays
+ * sellable for the rest of the route. States only change through
+ * compare-and-set, so conflicting holds fail without a database lock. A coach
+ * gets its array only once one of its seats is taken. Every successful change
+ * also adjusts per-coach counts of seats held or sold anywhere on the route,
+ * so whole-route availability is read without visiting seats.
+ */
+public class SeatInventory {
+
+	private static final int BOOKED_SHIFT = SeatLayout.MAX_LEGS;
+	private static final long ANY_LEG = (1L << BOOKED_SHIFT) - 1;
+
+	private final SeatLayout layout;
+	private final LocalDate journeyDate;
+	private final AtomicReferenceArray<AtomicLongArray> coachSeats;
+	// Per coach and status, seats held or sold on some leg; the AVAILABLE entries stay unused
+	private final AtomicIntegerArray routeCounts;
+
+	SeatInventory(SeatLayout layout, LocalDate journeyDate) {
+		this.layout = layout;
+		this.journeyDate = journeyDate;
+		this.coachSeats = new AtomicReferenceArray<>(layout.coachCount());
+		this.routeCounts = new AtomicIntegerArray(layout.coachCount() * Seat.Status.values().length);
+	}
+
+	public SeatLayout getLayout() {
+		return layout;
+	}
+
+	public LocalDate getJourneyDate() {
+		return journeyDate;
+	}
+
+	// BOOKED if sold on any of the legs, RESERVED if held on any, AVAILABLE otherwise
+	public Seat.Status statusOf(long seatId, long legs) {
+		int slot = layout.slotOf(seatId);
+		if (slot < 0) throw new IllegalArgumentException("Seat does not belong to event: " + seatId);
+		return status(state(slot), legs);
+	}
+
+	// Seats of the coach per status on the given legs, indexed by status ordinal
+	public int[] counts(int coach, long legs) {
+		int[] counts = new int[Seat.Status.values().length];
+		if (legs == layout.fullMask()) {
+			counts[Seat.Status.RESERVED.ordinal()] = routeCounts.get(countIndex(coach, Seat.Status.RESERVED));
+			counts[Seat.Status.BOOKED.ordinal()] = routeCounts.get(countIndex(coach, Seat.Status.BOOKED));
+		} else {
+			AtomicLongArray seats = coachSeats.get(coach);
+			for (int i = 0; seats != null && i < seats.length(); i++) counts[status(seats.get(i), legs).ordinal()]++;
+		}
+		counts[Seat.Status.AVAILABLE.ordinal()] = layout.coachSize(coach)
+				- counts[Seat.Status.RESERVED.ordinal()] - counts[Seat.Status.BOOKED.ordinal()];
+		return counts;
+	}
+
+	// Used while rebuilding from bookings, before the inventory is shared
+	void load(long seatId, long legs, Seat.Status status) {
+		int slot = layout.slotOf(seatId);
+		if (slot >= 0) compareAndSet(slot, legs, Seat.Status.AVAILABLE, status);
+	}
+
+	/**
+	 * Holds every seat on the given legs or none of them. Seats are claimed in
+	 * ascending slot order and rolled back if any one is taken.
+	 */
+	public void hold(Collection<Long> ids, long legs) {
+		int[] slots = slotsOf(ids);
+		for (int i = 0; i < slots.length; i++) {
+			if (!compareAndSet(slots[i], legs, Seat.Status.AVAILABLE, Seat.Status.RESERVED)) {
+				for (int j = 0; j < i; j++) {
+					compareAndSet(slots[j], legs, Seat.Status.RESERVED, Seat.Status.AVAILABLE);
+				}
+				throw new IllegalStateException("Seat not available: " + layout.seatId(slots[i]));
+			}
+		}
+	}
+
+	/**
+	 * Holds {@code count} seats that are free on the given legs, from the given
+	 * coach, or from any coach of the given class when no coach is named, or
+	 * from the whole rake when neither is. Returns the held seat ids, or an
+	 * empty list if not enough were free.
+	 */
+	public List<Long> holdAvailable(String classType, Long coachId, int count, long legs) {
+		if (count <= 0) return List.of();
+		List<Integer> claimed = new ArrayList<>(count);
+		for (int c = 0; c < layout.coachCount() && claimed.size() < count; c++) {
+			if (coachId != null ? Objects.equals(layout.coachId(c), coachId)
+					: classType == null || classType.equalsIgnoreCase(layout.coachClass(c))) {
+				claimFree(c, count, legs, claimed);
+			}
+		}
+		if (claimed.size() < count) {
+			for (int slot : claimed) compareAndSet(slot, legs, Seat.Status.RESERVED, Seat.Status.AVAILABLE);
+			return List.of();
+		}
+		return claimed.stream().map(layout::seatId).toList();
+	}
+
+	/**
+	 * Moves the given seats from {@code from} to {@code to} on the given legs
+	 * and returns the ids that were not in {@code from} and so were left alone.
+	 */
+	public List<Long> transition(Collection<Long> ids, long legs, Seat.Status from, Seat.Status to) {
+		List<Long> skipped = new ArrayList<>();
+		for (int slot : slotsOf(ids)) {
+			if (!compareAndSet(slot, legs, from, to)) skipped.add(layout.seatId(slot));
+		}
+		return skipped;
+	}
+
+	private void claimFree(int coach, int count, long legs, List<Integer> claimed) {
+		AtomicLongArray seats = seats(coach, true);
+		long taken = legs | (legs << BOOKED_SHIFT);
+		int base = layout.coachStart(coach);
+		for (int i = 0; i < seats.length() && claimed.size() < count; i++) {
+			if ((seats.get(i) & taken) == 0 && compareAndSet(base + i, legs, Seat.Status.AVAILABLE, Seat.Status.RESERVED)) {
+				claimed.add(base + i);
+			}
+		}
+	}
+
+	private long state(int slot) {
+		AtomicLongArray seats = coachSeats.get(layout.coachOfSlot(slot));
+		return seats == null ? 0L : seats.get(slot - layout.coachStart(layout.coachOfSlot(slot)));
+	}
+
+	private AtomicLongArray seats(int coach, boolean create) {
+		AtomicLongArray seats = coachSeats.get(coach);
+		if (seats != null || !create) return seats;
+		seats = new AtomicLongArray(layout.coachSize(coach));
+		return coachSeats.compareAndSet(coach, null, seats) ? seats : coachSeats.get(coach);
+	}
+
+	private int[] slotsOf(Collection<Long> ids) {
+		int[] slots = new int[ids.size()];
+		int n = 0;
+		for (Long id : ids) {
+			int slot = id == null ? -1 : layout.slotOf(id);
+			if (slot < 0) throw new IllegalArgumentException("Seat does not belong to event: " + id);
+			slots[n++] = slot;
+		}
+		Arrays.sort(slots);
+		for (int i = 1; i < slots.length; i++) {
+			if (slots[i] == slots[i - 1]) throw new IllegalArgumentException("Duplicate seat: " + layout.seatId(slots[i]));
+		}
+		return slots;
+	}
+
+	private boolean compareAndSet(int slot, long legs, Seat.Status expected, Seat.Status update) {
+		int coach = layout.coachOfSlot(slot);
+		AtomicLongArray seats = seats(coach, expected == Seat.Status.AVAILABLE);
+		if (seats == null) return false;
+		int index = slot - layout.coachStart(coach);
+		while (true) {
+			long state = seats.get(index);
+			if (!covers(state, legs, expected)) return false;
+			long next = (state & ~bits(legs, expected)) | bits(legs, update);
+			if (seats.compareAndSet(index, state, next)) {
+				recount(coach, state, next);
+				return true;
+			}
+		}
+	}
+
+	private void recount(int coach, long before, long after) {
+		Seat.Status was = status(before, ANY_LEG);
+		Seat.Status now = status(after, ANY_LEG);
+		if (was == now) return;
+		if (was != Seat.Status.AVAILABLE) routeCounts.decrementAndGet(countIndex(coach, was));
+		if (now != Seat.Status.AVAILABLE) routeCounts.incrementAndGet(countIndex(coach, now));
+	}
+
+	private static int countIndex(int coach, Seat.Status status) {
+		return coach * Seat.Status.values().length + status.ordinal();
+	}
+
+	// Whether the seat is in the given state on every one of the legs
+	private static boolean covers(long state, long legs, Seat.Status status) {
+		return switch (status) {
+			case AVAILABLE -> (state & (legs | (legs << BOOKED_SHIFT))) == 0;
+			case RESERVED -> (state & legs) == legs && ((state >>> BOOKED_SHIFT) & legs) == 0;
+			case BOOKED -> ((state >>> BOOKED_SHIFT) & legs) == legs;
+		};
+	}
+
+	private static long bits(long legs, Seat.Status status) {
+		return switch (status) {
+			case AVAILABLE -> 0L;
+			case RESERVED -> legs;
+			case BOOKED -> legs << BOOKED_SHIFT;
+		};
+	}
+
+	private static Seat.Status status(long state, long legs) {
+		if (((state >>> BOOKED_SHIFT) & legs) != 0) return Seat.Status.BOOKED;
+		if ((state & legs) != 0) return Seat.Status.RESERVED;
+		return Seat.Status.AVAILABLE;
+	}
+}
@@ -0,0 +1,356 @@
+package com.example.ticketbooking.service;
+
+import com.example.ticketbooking.model.Booking;
+import com.example.ticketbooking.model.Seat;
+import com.example.ticketbooking.repository.BookingRepository;
+import com.example.ticketbooking.repository.EventRepository;
+import com.example.ticketbooking.repository.SeatRepository;
+import com.example.ticketbooking.repository.TrainScheduleRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityNotFoundException;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Seat availability per event, journey date and leg. The rake and route of an
+ * event are loaded once; the seat states of a date are rebuilt from its active
+ * bookings the first time the date is touched, so nothing is stored per seat
+ * per date. Leg masks come from {@link SeatLayout#legMask}. Every change is
+ * also published on the {@link SeatEventBus}, and changes published by other
+ * instances are replayed on the dates loaded here. Requests may only load
+ * dates the train runs on, from today up to the sale horizon, so the number
+ * of cached dates stays bounded.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class SeatInventoryService {
+
+	static final List<Booking.Status> ACTIVE = List.of(Booking.Status.HELD, Booking.Status.ORDER_CREATED,
+			Booking.Status.PENDING_PAYMENT, Booking.Status.CONFIRMED);
+
+	private final SeatRepository seatRepository;
+	private final EventRepository eventRepository;
+	private final BookingRepository bookingRepository;
+	private final TrainScheduleRepository trainScheduleRepository;
+	private final SeatEventBus seatEventBus;
+
+	private final Map<Long, SeatLayout> layouts = new ConcurrentHashMap<>();
+	private final Map<InventoryKey, SeatInventory> inventories = new ConcurrentHashMap<>();
+	private final List<Consumer<SeatEventBus.SeatChange>> rollbackListeners = new CopyOnWriteArrayList<>();
+
+	@Value("${app.booking.sale-horizon-days:120}")
+	private int saleHorizonDays;
+
+	public record CoachAvailability(Long coachId, String classType, int available, int reserved, int booked) {}
+
+	private record InventoryKey(Long eventId, LocalDate journeyDate) {}
+
+	@PostConstruct
+	void listen() {
+		seatEventBus.subscribe(this::apply);
+	}
+
+	public SeatLayout layout(Long eventId) {
+		return layouts.computeIfAbsent(eventId, id -> {
+			EventRepository.RunView run = eventRepository.findRunById(id)
+					.orElseThrow(() -> new EntityNotFoundException("Event not found"));
+			return SeatLayout.of(id, run.getStartTime().toLocalDate(), run.getRunningDays(),
+					seatRepository.findSlotsByEventId(id), trainScheduleRepository.findStopsByEventId(id));
+		});
+	}
+
+	// Bookings without a journey date travel on the date the event starts
+	public LocalDate resolveDate(Long eventId, LocalDate journeyDate) {
+		return journeyDate != null ? journeyDate : layout(eventId).getBaseDate();
+	}
+
+	/**
+	 * The journey date a request may read or sell: today up to the sale horizon,
+	 * on a day the train runs. The train's own date is always allowed, as that
+	 * is where bookings without a journey date live.
+	 */
+	public LocalDate saleDate(Long eventId, LocalDate journeyDate) {
+		SeatLayout layout = layout(eventId);
+		LocalDate date = journeyDate != null ? journeyDate : layout.getBaseDate();
+		if (date.equals(layout.getBaseDate())) return date;
+		LocalDate today = LocalDate.now();
+		if (date.isBefore(today) || date.isAfter(today.plusDays(saleHorizonDays))) {
+			throw new IllegalArgumentException("Journey date is outside the booking window: " + date);
+		}
+		if (!layout.runsOn(date)) throw new IllegalArgumentException("Train does not run on " + date);
+		return date;
+	}
+
+	public SeatInventory inventory(Long eventId, LocalDate journeyDate) {
+		return loaded(eventId, saleDate(eventId, journeyDate));
+	}
+
+	// No date check: for bookings that already hold seats on the date, and channels opened through a checked read
+	SeatInventory loaded(Long eventId, LocalDate journeyDate) {
+		LocalDate date = resolveDate(eventId, journeyDate);
+		return inventories.computeIfAbsent(new InventoryKey(eventId, date), key -> load(layout(eventId), date));
+	}
+
+	/**
+	 * Loads the journey date for every given event that has not loaded it yet,
+	 * with one bookings query per distinct date, e.g. for a page of search
+	 * results. Events not sold on the date are left out.
+	 */
+	public void preload(Collection<Long> eventIds, LocalDate journeyDate) {
+		Map<LocalDate, List<Long>> missing = new HashMap<>();
+		for (Long eventId : eventIds) {
+			try {
+				LocalDate date = saleDate(eventId, journeyDate);
+				if (!inventories.containsKey(new InventoryKey(eventId, date))) missing.computeIfAbsent(date, d -> new ArrayList<>()).add(eventId);
+			} catch (IllegalArgumentException | EntityNotFoundException e) {
+				// Reported by the per-event read, if the caller makes one
+			}
+		}
+		missing.forEach((date, ids) -> {
+			Map<Long, SeatInventory> loaded = new HashMap<>();
+			for (Long eventId : ids) loaded.put(eventId, new SeatInventory(layout(eventId), date));
+			for (BookingRepository.EventHeldSeatView held : bookingRepository.findHeldSeatsByEventIds(ids, date, ACTIVE)) {
+				SeatInventory inventory = loaded.get(held.getEventId());
+				if (held.getJourneyDate() == null && !date.equals(inventory.getLayout().getBaseDate())) continue;
+				fill(inventory, held);
+			}
+			// A date loaded meanwhile by another request may already carry holds; that copy wins
+			loaded.forEach((eventId, inventory) -> inventories.putIfAbsent(new InventoryKey(eventId, date), inventory));
+		});
+	}
+
+	// Legs between two stops given by station code; blank codes mean the train's source or destination
+	public long legs(Long eventId, String fromStation, String toStation) {
+		SeatLayout layout = layout(eventId);
+		return layout.legMask(layout.stopSequence(fromStation), layout.stopSequence(toStation));
+	}
+
+	// Legs of an existing booking, which may name a stop the route has since dropped
+	public long heldLegs(Long eventId, Integer fromStop, Integer toStop) {
+		return heldLegs(layout(eventId), fromStop, toStop);
+	}
+
+	public List<CoachAvailability> coachAvailability(Long eventId, LocalDate journeyDate, long legs) {
+		SeatInventory inventory = inventory(eventId, journeyDate);
+		SeatLayout layout = inventory.getLayout();
+		List<CoachAvailability> coaches = new ArrayList<>(layout.coachCount());
+		for (int c = 0; c < layout.coachCount(); c++) {
+			int[] counts = inventory.counts(c, legs);
+			coaches.add(new CoachAvailability(layout.coachId(c), layout.coachClass(c), counts[Seat.Status.AVAILABLE.ordinal()],
+					counts[Seat.Status.RESERVED.ordinal()], counts[Seat.Status.BOOKED.ordinal()]));
+		}
+		return coaches;
+	}
+
+	// Holds the seats and gives them back if the surrounding transaction does not commit
+	public void hold(Long eventId, LocalDate journeyDate, long legs, Collection<Long> seatIds) {
+		if (seatIds.isEmpty()) return;
+		SeatInventory inventory = inventory(eventId, journeyDate);
+		inventory.hold(seatIds, legs);
+		onRollback(() -> inventory.transition(seatIds, legs, Seat.Status.RESERVED, Seat.Status.AVAILABLE),
+				new SeatEventBus.SeatChange(eventId, inventory.getJourneyDate(), legs, Seat.Status.RESERVED, Seat.Status.AVAILABLE, List.copyOf(seatIds)));
+		publish(new SeatEventBus.SeatChange(eventId, inventory.getJourneyDate(), legs, Seat.Status.AVAILABLE, Seat.Status.RESERVED, List.copyOf(seatIds)));
+	}
+
+	// Picks and holds seats from the free-seat index without loading the rake
+	public List<Long> holdAvailable(Long eventId, LocalDate journeyDate, long legs, String classType, Long coachId, int count) {
+		SeatInventory inventory = inventory(eventId, journeyDate);
+		List<Long> held = inventory.holdAvailable(classType, coachId, count, legs);
+		if (!held.isEmpty()) {
+			onRollback(() -> inventory.transition(held, legs, Seat.Status.RESERVED, Seat.Status.AVAILABLE),
+					new SeatEventBus.SeatChange(eventId, inventory.getJourneyDate(), legs, Seat.Status.RESERVED, Seat.Status.AVAILABLE, held));
+			publish(new SeatEventBus.SeatChange(eventId, inventory.getJourneyDate(), legs, Seat.Status.AVAILABLE, Seat.Status.RESERVED, held));
+		}
+		return held;
+	}
+
+	/**
+	 * Turns held seats into booked ones; undone if any hold has lapsed or the
+	 * transaction rolls back. A hold taken on another instance may not have
+	 * reached this one yet; such seats are booked here if the bookings table
+	 * shows them held.
+	 */
+	public void confirm(Long eventId, LocalDate journeyDate, long legs, Collection<Long> seatIds) {
+		SeatInventory inventory = loaded(eventId, journeyDate);
+		List<Long> skipped = inventory.transition(seatIds, legs, Seat.Status.RESERVED, Seat.Status.BOOKED);
+		List<Long> moved = seatIds.stream().filter(id -> !skipped.contains(id)).toList();
+		List<Long> missed = skipped.isEmpty() ? List.of() : bookMissedHolds(inventory, legs, skipped);
+		if (missed.size() < skipped.size()) {
+			inventory.transition(moved, legs, Seat.Status.BOOKED, Seat.Status.RESERVED);
+			inventory.transition(missed, legs, Seat.Status.BOOKED, Seat.Status.AVAILABLE);
+			throw new IllegalStateException("Seat hold has lapsed: " + skipped.stream().filter(id -> !missed.contains(id)).findFirst().orElseThrow());
+		}
+		List<Long> changed = new ArrayList<>(moved);
+		changed.addAll(missed);
+		onRollback(() -> {
+			inventory.transition(moved, legs, Seat.Status.BOOKED, Seat.Status.RESERVED);
+			inventory.transition(missed, legs, Seat.Status.BOOKED, Seat.Status.AVAILABLE);
+		}, new SeatEventBus.SeatChange(eventId, inventory.getJourneyDate(), legs, Seat.Status.BOOKED, Seat.Status.RESERVED, changed));
+		publish(new SeatEventBus.SeatChange(eventId, inventory.getJourneyDate(), legs, Seat.Status.RESERVED, Seat.Status.BOOKED, moved));
+		if (!missed.isEmpty()) {
+			publish(new SeatEventBus.SeatChange(eventId, inventory.getJourneyDate(), legs, Seat.Status.AVAILABLE, Seat.Status.BOOKED, missed));
+		}
+	}
+
+	// Books the seats that are free here but held by an active booking in the database; returns the ones booked
+	private List<Long> bookMissedHolds(SeatInventory inventory, long legs, List<Long> seatIds) {
+		SeatLayout layout = inventory.getLayout();
+		LocalDate date = inventory.getJourneyDate();
+		List<Long> held = bookingRepository.findHeldSeatsByIds(layout.getEventId(), date, date.equals(layout.getBaseDate()), ACTIVE, seatIds).stream()
+				.filter(view -> (heldLegs(layout, view) & legs) != 0)
+				.map(BookingRepository.HeldSeatView::getSeatId)
+				.distinct()
+				.toList();
+		List<Long> refused = inventory.transition(held, legs, Seat.Status.AVAILABLE, Seat.Status.BOOKED);
+		return held.stream().filter(id -> !refused.contains(id)).toList();
+	}
+
+	// Releases the seats once the surrounding transaction commits, or right away without one
+	public void releaseAfterCommit(Long eventId, LocalDate journeyDate, long legs, Collection<Long> seatIds) {
+		afterCommit(() -> loaded(eventId, journeyDate).transition(seatIds, legs, Seat.Status.RESERVED, Seat.Status.AVAILABLE));
+		publish(new SeatEventBus.SeatChange(eventId, resolveDate(eventId, journeyDate), legs, Seat.Status.RESERVED, Seat.Status.AVAILABLE, List.copyOf(seatIds)));
+	}
+
+	/**
+	 * Registers a listener for in-memory changes undone because their
+	 * transaction rolled back. Nothing reached the database or the bus, but
+	 * the seats may have been read in between.
+	 */
+	public void onRolledBack(Consumer<SeatEventBus.SeatChange> listener) {
+		rollbackListeners.add(listener);
+	}
+
+	// Drops the cached rake and all dates of the event, e.g. after the rake or route changed
+	public void invalidateAfterCommit(Long eventId) {
+		afterCommit(() -> invalidate(eventId));
+		publish(SeatEventBus.SeatChange.layoutChanged(eventId));
+	}
+
+	// Same as invalidateAfterCommit for callers already running after their commit, such as entity listeners
+	public void invalidateCommitted(Long eventId) {
+		invalidate(eventId);
+		seatEventBus.publish(SeatEventBus.SeatChange.layoutChanged(eventId));
+	}
+
+	@EventListener(ApplicationReadyEvent.class)
+	public void rebuild() {
+		layouts.clear();
+		inventories.clear();
+		List<Long> eventIds = eventRepository.findAllIds();
+		eventIds.forEach(this::layout);
+		log.info("Seat layouts loaded for {} events", eventIds.size());
+	}
+
+	// Past journey dates can no longer be sold; they are rebuilt on demand if ever read again
+	@Scheduled(cron = "${app.booking.inventory.evict-cron:0 5 0 * * *}")
+	public void evictPastDates() {
+		LocalDate today = LocalDate.now();
+		inventories.keySet().removeIf(key -> key.journeyDate().isBefore(today));
+	}
+
+	// Replays a change made by another instance; dates not loaded here read it from the bookings once they are
+	private void apply(SeatEventBus.SeatChange change) {
+		if (change.isLayoutChange()) {
+			invalidate(change.eventId());
+			return;
+		}
+		InventoryKey key = new InventoryKey(change.eventId(), change.journeyDate());
+		SeatInventory inventory = inventories.get(key);
+		if (inventory == null) return;
+		try {
+			inventory.transition(change.seatIds(), change.legs(), change.from(), change.to());
+		} catch (IllegalArgumentException e) {
+			// The other instance sold from a rake this one has not loaded yet
+			inventories.remove(key, inventory);
+		}
+	}
+
+	private void invalidate(Long eventId) {
+		layouts.remove(eventId);
+		inventories.keySet().removeIf(key -> key.eventId().equals(eventId));
+	}
+
+	private SeatInventory load(SeatLayout layout, LocalDate date) {
+		SeatInventory inventory = new SeatInventory(layout, date);
+		boolean undated = date.equals(layout.getBaseDate());
+		for (BookingRepository.HeldSeatView held : bookingRepository.findHeldSeats(layout.getEventId(), date, undated, ACTIVE)) {
+			fill(inventory, held);
+		}
+		return inventory;
+	}
+
+	private static void fill(SeatInventory inventory, BookingRepository.HeldSeatView held) {
+		inventory.load(held.getSeatId(), heldLegs(inventory.getLayout(), held), held.getStatus().isAwaitingPayment() ? Seat.Status.RESERVED : Seat.Status.BOOKED);
+	}
+
+	static long heldLegs(SeatLayout layout, BookingRepository.HeldSeatView held) {
+		return heldLegs(layout, held.getFromStop(), held.getToStop());
+	}
+
+	private static long heldLegs(SeatLayout layout, Integer fromStop, Integer toStop) {
+		try {
+			return layout.legMask(fromStop, toStop);
+		} catch (IllegalArgumentException e) {
+			// The route no longer has one of the booking's stops; keep the seat taken for the whole run
+			return layout.fullMask();
+		}
+	}
+
+	// Undoes an in-memory change whose transaction did not commit, and tells the rollback listeners about it
+	private void onRollback(Runnable action, SeatEventBus.SeatChange undone) {
+		if (!TransactionSynchronizationManager.isSynchronizationActive()) return;
+		TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+			@Override
+			public void afterCompletion(int status) {
+				if (status == STATUS_COMMITTED) return;
+				action.run();
+				rollbackListeners.forEach(listener -> listener.accept(undone));
+			}
+		});
+	}
+
+	// Written by the transaction making the change, just before it commits, so ids reach other instances close to commit order
+	private void publish(SeatEventBus.SeatChange change) {
+		if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+			seatEventBus.publish(change);
+			return;
+		}
+		TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+			@Override
+			public void beforeCommit(boolean readOnly) {
+				seatEventBus.publish(change);
+			}
+		});
+	}
+
+	private void afterCommit(Runnable action) {
+		if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+			action.run();
+			return;
+		}
+		TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+			@Override
+			public void afterCommit() {
+				action.run();
+			}
+		});
+	}
+}
@@ -0,0 +1,197 @@
+package com.example.ticketbooking.service;
+
+import com.example.ticketbooking.repository.SeatRepository;
+import com.example.ticketbooking.repository.TrainScheduleRepository;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Immutable rake and route of one event: which seat sits in which slot, which
+ * slots belong to which coach, which legs lie between two stops, and on which
+ * days of the week the train runs. The layout is shared by all journey dates.
+ */
+public class SeatLayout {
+
+	// Seat states keep one bit per leg for holds and one for sales in a single long
+	static final int MAX_LEGS = Integer.SIZE;
+
+	private final Long eventId;
+	private final LocalDate baseDate;
+	private final Set<DayOfWeek> runningDays;
+	private final long[] slotIds;
+	private final long[] sortedIds;
+	private final int[] sortedSlots;
+	private final int[] slotCoach;
+	private final Long[] coachIds;
+	private final String[] coachClasses;
+	private final int[] coachStart;
+	private final int[] stopSequences;
+	private final String[] stopCodes;
+
+	private SeatLayout(Long eventId, LocalDate baseDate, Set<DayOfWeek> runningDays, List<List<SeatRepository.SeatSlotView>> coaches,
+			List<TrainScheduleRepository.StopView> stops) {
+		this.eventId = eventId;
+		this.baseDate = baseDate;
+		this.runningDays = runningDays;
+		int coachCount = coaches.size();
+		this.coachIds = new Long[coachCount];
+		this.coachClasses = new String[coachCount];
+		this.coachStart = new int[coachCount + 1];
+		int seatCount = coaches.stream().mapToInt(List::size).sum();
+		this.slotIds = new long[seatCount];
+		this.slotCoach = new int[seatCount];
+
+		int slot = 0;
+		for (int c = 0; c < coachCount; c++) {
+			List<SeatRepository.SeatSlotView> seats = coaches.get(c);
+			coachIds[c] = seats.get(0).getCoachId();
+			coachClasses[c] = seats.get(0).getClassType();
+			coachStart[c] = slot;
+			for (SeatRepository.SeatSlotView seat : seats) {
+				slotCoach[slot] = c;
+				slotIds[slot++] = seat.getId();
+			}
+		}
+		coachStart[coachCount] = slot;
+
+		this.sortedIds = new long[seatCount];
+		this.sortedSlots = new int[seatCount];
+		Integer[] order = new Integer[seatCount];
+		for (int i = 0; i < seatCount; i++) order[i] = i;
+		Arrays.sort(order, (a, b) -> Long.compare(slotIds[a], slotIds[b]));
+		for (int i = 0; i < seatCount; i++) {
+			sortedSlots[i] = order[i];
+			sortedIds[i] = slotIds[order[i]];
+		}
+
+		this.stopSequences = stops.stream().mapToInt(TrainScheduleRepository.StopView::getSequenceNumber).toArray();
+		this.stopCodes = stops.stream().map(TrainScheduleRepository.StopView::getStationCode).toArray(String[]::new);
+	}
+
+	// Seats must arrive grouped by coach in rake order, stops in route order
+	static SeatLayout of(Long eventId, LocalDate baseDate, String runningDays, List<SeatRepository.SeatSlotView> seats,
+			List<TrainScheduleRepository.StopView> stops) {
+		Map<Long, List<SeatRepository.SeatSlotView>> byCoach = new LinkedHashMap<>();
+		for (SeatRepository.SeatSlotView seat : seats) {
+			byCoach.computeIfAbsent(seat.getCoachId(), k -> new ArrayList<>()).add(seat);
+		}
+		return new SeatLayout(eventId, baseDate, parseDays(runningDays), new ArrayList<>(byCoach.values()), stops);
+	}
+
+	// "MON,TUE,..." as stored on the event; no days, or none that parse, means the train runs daily
+	static Set<DayOfWeek> parseDays(String runningDays) {
+		Set<DayOfWeek> days = EnumSet.noneOf(DayOfWeek.class);
+		if (runningDays == null) return EnumSet.allOf(DayOfWeek.class);
+		for (String day : runningDays.split("[,\\s]+")) {
+			String code = day.trim().toUpperCase(Locale.ROOT);
+			if (code.length() < 3) continue;
+			for (DayOfWeek d : DayOfWeek.values()) {
+				if (d.name().startsWith(code.substring(0, 3))) days.add(d);
+			}
+		}
+		return days.isEmpty() ? EnumSet.allOf(DayOfWeek.class) : days;
+	}
+
+	public Long getEventId() {
+		return eventId;
+	}
+
+	// Journey date of bookings made before inventory was kept per date
+	public LocalDate getBaseDate() {
+		return baseDate;
+	}
+
+	public boolean runsOn(LocalDate date) {
+		return runningDays.contains(date.getDayOfWeek());
+	}
+
+	public int size() {
+		return slotIds.length;
+	}
+
+	public int slotOf(long seatId) {
+		int i = Arrays.binarySearch(sortedIds, seatId);
+		return i < 0 ? -1 : sortedSlots[i];
+	}
+
+	public long seatId(int slot) {
+		return slotIds[slot];
+	}
+
+	public int coachCount() {
+		return coachIds.length;
+	}
+
+	public Long coachId(int coach) {
+		return coachIds[coach];
+	}
+
+	public String coachClass(int coach) {
+		return coachClasses[coach];
+	}
+
+	public int coachSize(int coach) {
+		return coachStart[coach + 1] - coachStart[coach];
+	}
+
+	public int coachStart(int coach) {
+		return coachStart[coach];
+	}
+
+	public int coachOfSlot(int slot) {
+		return slotCoach[slot];
+	}
+
+	public int legCount() {
+		return Math.max(1, stopSequences.length - 1);
+	}
+
+	// Schedule sequence number of a stop given by station code; null stays null and means the terminus
+	public Integer stopSequence(String stationCode) {
+		if (stationCode == null || stationCode.isBlank()) return null;
+		for (int i = 0; i < stopCodes.length; i++) {
+			if (stationCode.equalsIgnoreCase(stopCodes[i])) return stopSequences[i];
+		}
+		throw new IllegalArgumentException("Train does not stop at: " + stationCode);
+	}
+
+	/**
+	 * Bit mask of the legs travelled between two stops, given by schedule
+	 * sequence number; null means the train's source or destination. Routes
+	 * with more legs than {@link #MAX_LEGS} share bits between neighbouring
+	 * legs, which only ever makes availability more conservative.
+	 */
+	public long legMask(Integer fromSequence, Integer toSequence) {
+		int legs = legCount();
+		int from = fromSequence == null ? 0 : stopIndex(fromSequence);
+		int to = toSequence == null ? legs : stopIndex(toSequence);
+		if (from >= to) throw new IllegalArgumentException("Journey must end after it starts");
+		int first = bucket(from, legs);
+		int last = bucket(to - 1, legs);
+		return (-1L >>> (Long.SIZE - 1 - last + first)) << first;
+	}
+
+	public long fullMask() {
+		return legMask(null, null);
+	}
+
+	private int stopIndex(int sequence) {
+		for (int i = 0; i < stopSequences.length; i++) {
+			if (stopSequences[i] == sequence) return i;
+		}
+		throw new IllegalArgumentException("Train does not stop at sequence: " + sequence);
+	}
+
+	private static int bucket(int leg, int legs) {
+		return legs <= MAX_LEGS ? leg : (int) ((long) leg * MAX_LEGS / legs);
+	}
+}
@@ -2,79 +2,366 @@ package com.example.ticketbooking.service;
 
 import com.example.ticketbooking.model.Seat;
 import com.example.ticketbooking.repository.SeatRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.io.IOException;
+import java.time.LocalDate;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.BlockingDeque;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
+/**
+ * Seat status streams over SSE. Committed changes are collected per channel
+ * and flushed on a dispatcher thread once per coalescing window, so a burst of
+ * bookings on one train becomes one frame. Each flush bumps the channel's
+ * version, which is sent as the SSE event id, and is kept in a bounded
+ * history. A client reconnecting with Last-Event-ID is sent one frame with the
+ * seats changed since; only a client older than the history, or from another
+ * run of the server, gets the full seat map, which is cached per version and
+ * leg mask and read from the rake cached per event rather than the database.
+ * <p>
+ * Frames are serialized once per distinct leg mask and the same bytes are
+ * queued to every subscriber; a writer per subscriber drains its bounded
+ * queue, so a slow browser only delays itself. A subscriber whose queue
+ * overflows loses its backlog and is sent the seat map instead; if it
+ * overflows again before that is out, it is disconnected.
+ */
 @Service
+@Slf4j
 public class SeatUpdateBroadcaster {
 
 	private final SeatRepository seatRepository;
+	private final SeatInventoryService seatInventoryService;
+	private final ObjectMapper objectMapper;
+	private final ExecutorService writers;
+	private final int queueCapacity;
+	private final int historySize;
+	// Event ids of an earlier run, or of another instance, never match this prefix
+	private final String epoch = Long.toString(System.currentTimeMillis(), 36) + '-';
+	private final ScheduledExecutorService dispatcher = Executors.newSingleThreadScheduledExecutor(
+			Thread.ofPlatform().name("seat-update-dispatcher").daemon().factory());
 
-	public SeatUpdateBroadcaster(SeatRepository seatRepository) {
+	public SeatUpdateBroadcaster(SeatRepository seatRepository, SeatInventoryService seatInventoryService,
+			ObjectMapper objectMapper, @Qualifier("seatUpdateExecutor") ExecutorService writers,
+			@Value("${app.realtime.coalesce-ms:50}") long coalesceMs,
+			@Value("${app.realtime.queue-capacity:64}") int queueCapacity,
+			@Value("${app.realtime.history:256}") int historySize, SeatEventBus seatEventBus) {
 		this.seatRepository = seatRepository;
+		this.seatInventoryService = seatInventoryService;
+		this.objectMapper = objectMapper;
+		this.writers = writers;
+		this.queueCapacity = queueCapacity;
+		this.historySize = historySize;
+		dispatcher.scheduleWithFixedDelay(this::flush, coalesceMs, coalesceMs, TimeUnit.MILLISECONDS);
+		seatEventBus.subscribe(this::relay);
+		// A rolled back hold may already be in a cached seat map; the frame it triggers also bumps the version
+		seatInventoryService.onRolledBack(this::relay);
 	}
 
-	private final Map<Long, CopyOnWriteArrayList<SseEmitter>> eventIdToEmitters = new ConcurrentHashMap<>();
-
-	public SseEmitter subscribe(Long eventId) {
-		SseEmitter emitter = new SseEmitter(0L);
-		eventIdToEmitters.computeIfAbsent(eventId, k -> new CopyOnWriteArrayList<>()).add(emitter);
-		emitter.onCompletion(() -> remove(eventId, emitter));
-		emitter.onTimeout(() -> remove(eventId, emitter));
-
-		// Send initial snapshot
-		List<Map<String, Object>> snapshot = seatRepository.findByEvent_Id(eventId).stream()
-				.map(s -> {
-					java.util.Map<String, Object> m = new java.util.HashMap<>();
-					m.put("id", s.getId());
-					m.put("rowLabel", s.getRowLabel());
-					m.put("seatNumber", s.getSeatNumber());
-					m.put("status", s.getStatus().name());
-					return m;
-				})
-				.collect(Collectors.toList());
-		try {
-			emitter.send(SseEmitter.event()
-					.data(Map.of("type", "init", "data", snapshot), MediaType.APPLICATION_JSON));
-		} catch (IOException ignored) {
-			remove(eventId, emitter);
-		}
+	// Subscribers watch one journey date of an event, each over the legs of their own journey
+	private record Channel(Long eventId, LocalDate journeyDate) {}
+
+	private record SeatRef(Long id, String rowLabel, Integer seatNumber) {}
+
+	private record SeatUpdate(Long id, String rowLabel, Integer seatNumber, String status) {}
+
+	private record Frame(String type, List<SeatUpdate> data) {}
+
+	private record Outgoing(String id, byte[] data) {}
+
+	private record Delta(long version, Collection<SeatRef> seats) {}
+
+	// The seats of an event as of one layout; a rebuilt layout means the rake may have changed
+	private record Rake(SeatLayout layout, List<SeatRef> seats, Map<Long, SeatRef> byId) {}
+
+	private record Snapshot(long version, Rake rake, Outgoing frame) {}
+
+	private final Map<Channel, ChannelState> channels = new ConcurrentHashMap<>();
+	private final Map<Long, Rake> rakes = new ConcurrentHashMap<>();
+	// Seats changed since the last flush, per channel; a seat changed several times is sent once
+	private final Map<Channel, Map<Long, SeatRef>> pending = new ConcurrentHashMap<>();
+
+	public SseEmitter subscribe(Long eventId, LocalDate journeyDate, String fromStation, String toStation, String lastEventId) {
+		Channel channel = new Channel(eventId, seatInventoryService.saleDate(eventId, journeyDate));
+		ChannelState state = channels.computeIfAbsent(channel, k -> new ChannelState());
+		Subscriber subscriber = new Subscriber(channel, state, new SseEmitter(0L), seatInventoryService.legs(eventId, fromStation, toStation));
+		SseEmitter emitter = subscriber.emitter;
+		emitter.onCompletion(() -> state.subscribers.remove(subscriber));
+		emitter.onTimeout(() -> state.subscribers.remove(subscriber));
+		emitter.onError(e -> state.subscribers.remove(subscriber));
+		// Registered first: whatever is flushed from now on reaches the subscriber, so catching up only covers the past
+		state.subscribers.add(subscriber);
+		subscriber.queue.offerFirst(catchUp(channel, subscriber, lastEventId));
+		subscriber.drain();
 		return emitter;
 	}
 
-	public void broadcastSeatStatus(Long eventId, List<Seat> seats) {
-		List<Map<String, Object>> updates = seats.stream()
-				.map(s -> {
-					java.util.Map<String, Object> m = new java.util.HashMap<>();
-					m.put("id", s.getId());
-					m.put("rowLabel", s.getRowLabel());
-					m.put("seatNumber", s.getSeatNumber());
-					m.put("status", s.getStatus().name());
-					return m;
-				})
-				.collect(Collectors.toList());
-		CopyOnWriteArrayList<SseEmitter> emitters = eventIdToEmitters.get(eventId);
-		if (emitters == null || emitters.isEmpty()) return;
-		for (SseEmitter emitter : emitters) {
+	// Queues the seats for the next frame once the surrounding transaction commits, or right away without one
+	public void broadcastSeatStatus(Long eventId, LocalDate journeyDate, List<Seat> seats) {
+		Channel channel = channel(eventId, journeyDate);
+		List<SeatRef> refs = seats.stream().map(s -> new SeatRef(s.getId(), s.getRowLabel(), s.getSeatNumber())).toList();
+		if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+			enqueue(channel, refs);
+			return;
+		}
+		TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+			@Override
+			public void afterCommit() {
+				enqueue(channel, refs);
+			}
+		});
+	}
+
+	// Seats changed by another instance, or restored by a rollback here, reach subscribers like committed local changes
+	private void relay(SeatEventBus.SeatChange change) {
+		if (change.isLayoutChange()) return;
+		Channel channel = channel(change.eventId(), change.journeyDate());
+		ChannelState state = channels.get(channel);
+		if (state == null) return;
+		if (state.subscribers.isEmpty()) {
+			// Not worth loading the rake for; a client resuming later gets the full seat map instead
+			state.forget();
+			return;
+		}
+		Rake rake = rake(change.eventId());
+		List<SeatRef> refs = change.seatIds().stream().map(rake.byId()::get).filter(Objects::nonNull).toList();
+		enqueue(channel, refs);
+	}
+
+	@Scheduled(cron = "${app.booking.inventory.evict-cron:0 5 0 * * *}")
+	public void evictPastDates() {
+		LocalDate today = LocalDate.now();
+		channels.entrySet().removeIf(e -> e.getKey().journeyDate().isBefore(today) && e.getValue().subscribers.isEmpty());
+	}
+
+	@PreDestroy
+	void shutdown() {
+		dispatcher.shutdownNow();
+	}
+
+	private Channel channel(Long eventId, LocalDate journeyDate) {
+		return new Channel(eventId, seatInventoryService.resolveDate(eventId, journeyDate));
+	}
+
+	// Changes are versioned for every channel anyone has watched, so clients can resume after all of them dropped
+	private void enqueue(Channel channel, Collection<SeatRef> seats) {
+		if (!channels.containsKey(channel)) return;
+		pending.compute(channel, (k, seatsById) -> {
+			Map<Long, SeatRef> merged = seatsById != null ? seatsById : new HashMap<>();
+			seats.forEach(s -> merged.put(s.id(), s));
+			return merged;
+		});
+	}
+
+	private void flush() {
+		for (Channel channel : List.copyOf(pending.keySet())) {
+			Map<Long, SeatRef> seats = pending.remove(channel);
+			ChannelState state = channels.get(channel);
+			if (seats == null || state == null) continue;
+			long version = state.record(seats.values());
+			if (state.subscribers.isEmpty()) continue;
 			try {
-				emitter.send(SseEmitter.event()
-						.data(Map.of("type", "update", "data", updates), MediaType.APPLICATION_JSON));
-			} catch (IOException e) {
-				remove(eventId, emitter);
+				publish(channel, state.subscribers, version, seats.values());
+			} catch (RuntimeException e) {
+				log.warn("Seat update for event {} on {} was not sent", channel.eventId(), channel.journeyDate(), e);
+			}
+		}
+	}
+
+	private void publish(Channel channel, List<Subscriber> subscribers, long version, Collection<SeatRef> seats) {
+		Map<Long, Outgoing> frames = new HashMap<>();
+		for (Subscriber subscriber : subscribers) {
+			subscriber.offer(frames.computeIfAbsent(subscriber.legs, legs -> frame("update", version, updates(channel, seats, legs))));
+		}
+	}
+
+	private Outgoing catchUp(Channel channel, Subscriber subscriber, String lastEventId) {
+		Long since = resumeVersion(lastEventId);
+		if (since == null) return snapshot(channel, subscriber);
+		ChannelState state = subscriber.state;
+		long version;
+		Collection<SeatRef> missed;
+		synchronized (state) {
+			version = state.version;
+			missed = state.changedSince(since);
+		}
+		if (missed == null) return snapshot(channel, subscriber);
+		// Sent even when nothing was missed, which also commits the response to the client
+		return frame("update", version, updates(channel, missed, subscriber.legs));
+	}
+
+	private Long resumeVersion(String lastEventId) {
+		if (lastEventId == null || !lastEventId.startsWith(epoch)) return null;
+		try {
+			return Long.parseLong(lastEventId.substring(epoch.length()));
+		} catch (NumberFormatException e) {
+			return null;
+		}
+	}
+
+	private Outgoing snapshot(Channel channel, Subscriber subscriber) {
+		ChannelState state = subscriber.state;
+		Rake rake = rake(channel.eventId());
+		long version;
+		synchronized (state) {
+			version = state.version;
+		}
+		return state.snapshots.compute(subscriber.legs, (legs, cached) ->
+				cached != null && cached.version() >= version && cached.rake() == rake
+						? cached
+						: new Snapshot(version, rake, frame("init", version, updates(channel, rake.seats(), legs)))).frame();
+	}
+
+	private Rake rake(Long eventId) {
+		SeatLayout layout = seatInventoryService.layout(eventId);
+		Rake rake = rakes.get(eventId);
+		if (rake != null && rake.layout() == layout) return rake;
+		return rakes.compute(eventId, (id, current) -> current != null && current.layout() == layout
+				? current
+				: load(layout));
+	}
+
+	private Rake load(SeatLayout layout) {
+		List<SeatRef> seats = seatRepository.findByEvent_Id(layout.getEventId()).stream()
+				.map(s -> new SeatRef(s.getId(), s.getRowLabel(), s.getSeatNumber()))
+				.toList();
+		return new Rake(layout, seats, seats.stream().collect(Collectors.toMap(SeatRef::id, Function.identity())));
+	}
+
+	private List<SeatUpdate> updates(Channel channel, Collection<SeatRef> seats, long legs) {
+		SeatInventory inventory = seatInventoryService.loaded(channel.eventId(), channel.journeyDate());
+		List<SeatUpdate> updates = new ArrayList<>(seats.size());
+		for (SeatRef s : seats) {
+			updates.add(new SeatUpdate(s.id(), s.rowLabel(), s.seatNumber(), inventory.statusOf(s.id(), legs).name()));
+		}
+		return updates;
+	}
+
+	private Outgoing frame(String type, long version, List<SeatUpdate> updates) {
+		try {
+			return new Outgoing(epoch + version, objectMapper.writeValueAsBytes(new Frame(type, updates)));
+		} catch (JsonProcessingException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private final class ChannelState {
+		final CopyOnWriteArrayList<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+		// Seat maps per leg mask, valid while no later version has been flushed
+		final Map<Long, Snapshot> snapshots = new ConcurrentHashMap<>();
+		private final Deque<Delta> history = new ArrayDeque<>();
+		private long version;
+
+		synchronized long record(Collection<SeatRef> seats) {
+			history.addLast(new Delta(++version, seats));
+			if (history.size() > historySize) history.removeFirst();
+			return version;
+		}
+
+		// Drops history and cached seat maps after a change that was not recorded
+		synchronized void forget() {
+			version++;
+			history.clear();
+			snapshots.clear();
+		}
+
+		// Seats changed after the given version, or null when the history no longer reaches back that far
+		synchronized Collection<SeatRef> changedSince(long since) {
+			if (since > version) return null;
+			if (since < version && (history.isEmpty() || history.peekFirst().version() > since + 1)) return null;
+			Map<Long, SeatRef> changed = new LinkedHashMap<>();
+			for (Delta delta : history) {
+				if (delta.version() > since) delta.seats().forEach(s -> changed.put(s.id(), s));
 			}
+			return changed.values();
 		}
 	}
 
-	private void remove(Long eventId, SseEmitter emitter) {
-		CopyOnWriteArrayList<SseEmitter> list = eventIdToEmitters.get(eventId);
-		if (list != null) list.remove(emitter);
+	private final class Subscriber {
+		final Channel channel;
+		final ChannelState state;
+		final SseEmitter emitter;
+		final long legs;
+		final BlockingDeque<Outgoing> queue = new LinkedBlockingDeque<>(queueCapacity);
+		final AtomicBoolean draining = new AtomicBoolean();
+		final AtomicBoolean resync = new AtomicBoolean();
+
+		Subscriber(Channel channel, ChannelState state, SseEmitter emitter, long legs) {
+			this.channel = channel;
+			this.state = state;
+			this.emitter = emitter;
+			this.legs = legs;
+		}
+
+		void offer(Outgoing frame) {
+			if (!queue.offer(frame)) {
+				queue.clear();
+				if (!resync.compareAndSet(false, true)) {
+					disconnect();
+					return;
+				}
+			}
+			drain();
+		}
+
+		void drain() {
+			if (draining.compareAndSet(false, true)) writers.execute(this::run);
+		}
+
+		private void run() {
+			try {
+				while (true) {
+					Outgoing frame = resync.getAndSet(false) ? snapshot(channel, this) : queue.poll();
+					if (frame == null) break;
+					emitter.send(SseEmitter.event().id(frame.id()).data(frame.data(), MediaType.APPLICATION_JSON));
+				}
+			} catch (IOException | RuntimeException e) {
+				// The container has already failed the request; completing the emitter is no longer allowed
+				drop();
+				return;
+			} finally {
+				draining.set(false);
+			}
+			// A frame offered after the last poll but before the flag was cleared
+			if (!queue.isEmpty() || resync.get()) drain();
+		}
+
+		private void disconnect() {
+			drop();
+			emitter.complete();
+		}
+
+		private void drop() {
+			state.subscribers.remove(this);
+			queue.clear();
+		}
 	}
-}
\ No newline at end of file
+}
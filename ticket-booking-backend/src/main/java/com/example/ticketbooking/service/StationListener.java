@@ -0,0 +1,43 @@
+package com.example.ticketbooking.service;
+
+import com.example.ticketbooking.model.Station;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+@Component
+public class StationListener {
+
+	private final StationSearchIndex stationSearchIndex;
+	private final StationLocator stationLocator;
+
+	public StationListener(@Lazy StationSearchIndex stationSearchIndex, @Lazy StationLocator stationLocator) {
+		this.stationSearchIndex = stationSearchIndex;
+		this.stationLocator = stationLocator;
+	}
+
+	@PostPersist
+	@PostUpdate
+	@PostRemove
+	void changed(Station station) {
+		if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+			publish();
+			return;
+		}
+		TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+			@Override
+			public void afterCommit() {
+				publish();
+			}
+		});
+	}
+
+	private void publish() {
+		stationSearchIndex.markStale();
+		stationLocator.markStale();
+	}
+}
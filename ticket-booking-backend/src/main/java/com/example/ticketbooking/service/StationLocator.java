@@ -0,0 +1,168 @@
+package com.example.ticketbooking.service;
+
+import com.example.ticketbooking.model.Station;
+import com.example.ticketbooking.repository.StationRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Nearest stations to a point, from a k-d tree over the stations that have
+ * coordinates. Points are placed on the unit sphere, so straight-line
+ * distance orders stations exactly as distance along the earth does and
+ * nothing breaks at the poles or the date line.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class StationLocator {
+
+	private static final double EARTH_RADIUS_KM = 6371.0088;
+
+	public record Nearby(Station station, double distanceKm) {}
+
+	private final StationRepository stationRepository;
+
+	private volatile Tree tree = Tree.build(List.of());
+	private volatile boolean stale;
+
+	// Up to k stations, closest first, optionally no further away than radiusKm
+	public List<Nearby> nearest(double latitude, double longitude, int k, Double radiusKm) {
+		Tree current = tree;
+		if (k <= 0 || current.stations.length == 0) return List.of();
+		double[] q = point(latitude, longitude);
+		double bound = radiusKm == null ? Double.MAX_VALUE : square(chord(radiusKm));
+		Best best = new Best(Math.min(k, current.stations.length), bound);
+		current.search(0, current.stations.length, 0, q, best);
+		List<Nearby> result = new ArrayList<>(best.size);
+		for (int i = 0; i < best.size; i++) {
+			double km = 2 * EARTH_RADIUS_KM * Math.asin(Math.min(1, Math.sqrt(best.distances[i]) / 2));
+			result.add(new Nearby(current.stations[best.slots[i]], km));
+		}
+		return result;
+	}
+
+	public void markStale() {
+		stale = true;
+	}
+
+	@Scheduled(fixedDelayString = "${app.search.route-refresh-ms:1000}")
+	public void refreshIfStale() {
+		if (stale) rebuild();
+	}
+
+	@EventListener(ApplicationReadyEvent.class)
+	@Scheduled(initialDelayString = "${app.search.refresh-ms:300000}", fixedDelayString = "${app.search.refresh-ms:300000}")
+	public void rebuild() {
+		stale = false;
+		List<Station> located = stationRepository.findAll().stream()
+				.filter(s -> s.getLatitude() != null && s.getLongitude() != null)
+				.toList();
+		tree = Tree.build(located);
+		log.debug("Station locator rebuilt with {} stations", located.size());
+	}
+
+	private static double[] point(double latitude, double longitude) {
+		double lat = Math.toRadians(latitude), lon = Math.toRadians(longitude);
+		return new double[]{Math.cos(lat) * Math.cos(lon), Math.cos(lat) * Math.sin(lon), Math.sin(lat)};
+	}
+
+	private static double chord(double km) {
+		return 2 * Math.sin(Math.min(Math.PI, km / EARTH_RADIUS_KM) / 2);
+	}
+
+	private static double square(double v) {
+		return v * v;
+	}
+
+	/**
+	 * Implicit tree: the median of each range is the node, split on x, y and
+	 * z in turn, with the lower half to its left and the upper half to its
+	 * right.
+	 */
+	private static final class Tree {
+		final Station[] stations;
+		final double[][] points;
+
+		private Tree(Station[] stations, double[][] points) {
+			this.stations = stations;
+			this.points = points;
+		}
+
+		static Tree build(List<Station> located) {
+			double[][] byStation = located.stream().map(s -> point(s.getLatitude(), s.getLongitude())).toArray(double[][]::new);
+			Integer[] order = new Integer[located.size()];
+			Arrays.setAll(order, i -> i);
+			split(order, byStation, 0, order.length, 0);
+			Station[] stations = new Station[order.length];
+			double[][] points = new double[order.length][];
+			for (int i = 0; i < order.length; i++) {
+				stations[i] = located.get(order[i]);
+				points[i] = byStation[order[i]];
+			}
+			return new Tree(stations, points);
+		}
+
+		private static void split(Integer[] order, double[][] points, int lo, int hi, int axis) {
+			if (hi - lo < 2) return;
+			Arrays.sort(order, lo, hi, Comparator.comparingDouble(i -> points[i][axis]));
+			int mid = (lo + hi) >>> 1;
+			split(order, points, lo, mid, (axis + 1) % 3);
+			split(order, points, mid + 1, hi, (axis + 1) % 3);
+		}
+
+		void search(int lo, int hi, int axis, double[] q, Best best) {
+			if (lo >= hi) return;
+			int mid = (lo + hi) >>> 1;
+			double[] p = points[mid];
+			best.offer(mid, square(p[0] - q[0]) + square(p[1] - q[1]) + square(p[2] - q[2]));
+			double diff = q[axis] - p[axis];
+			int next = (axis + 1) % 3;
+			if (diff < 0) {
+				search(lo, mid, next, q, best);
+				if (diff * diff <= best.bound()) search(mid + 1, hi, next, q, best);
+			} else {
+				search(mid + 1, hi, next, q, best);
+				if (diff * diff <= best.bound()) search(lo, mid, next, q, best);
+			}
+		}
+	}
+
+	// The k closest so far in ascending order of squared chord distance
+	private static final class Best {
+		final int[] slots;
+		final double[] distances;
+		final double radius;
+		int size;
+
+		Best(int k, double radius) {
+			this.slots = new int[k];
+			this.distances = new double[k];
+			this.radius = radius;
+		}
+
+		double bound() {
+			return size == slots.length ? distances[size - 1] : radius;
+		}
+
+		void offer(int slot, double distance) {
+			if (distance > bound()) return;
+			int i = size == slots.length ? size - 1 : size++;
+			while (i > 0 && distances[i - 1] > distance) {
+				slots[i] = slots[i - 1];
+				distances[i] = distances[i - 1];
+				i--;
+			}
+			slots[i] = slot;
+			distances[i] = distance;
+		}
+	}
+}
@@ -0,0 +1,171 @@
+package com.example.ticketbooking.service;
+
+import com.example.ticketbooking.model.Station;
+import com.example.ticketbooking.repository.StationRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Station autocomplete from memory. Codes, full names, cities and every word
+ * of a name or city go into a prefix trie, and each trie node keeps the best
+ * ranked stations below it, so a prefix is answered by one walk down the
+ * trie. Stations rank by category, A1 first. Queries of three or more
+ * characters also match prefixes one edit away, listed after the exact
+ * matches.
+ */
+@Service
+@Slf4j
+public class StationSearchIndex {
+
+	private static final List<String> CATEGORIES = List.of("A1", "A", "B", "C", "D", "E", "F");
+	private static final int FUZZY_MIN_LENGTH = 3;
+
+	private final StationRepository stationRepository;
+	private final int limit;
+
+	private volatile Trie trie = new Trie(new Station[0], 0);
+	private volatile boolean stale;
+
+	public StationSearchIndex(StationRepository stationRepository, @Value("${app.search.station-limit:20}") int limit) {
+		this.stationRepository = stationRepository;
+		this.limit = limit;
+	}
+
+	public List<Station> search(String query) {
+		Trie current = trie;
+		char[] q = normalize(query).toCharArray();
+		if (q.length == 0) return List.of();
+		Set<Integer> ranks = new LinkedHashSet<>();
+		Node exact = current.find(q);
+		if (exact != null) {
+			for (int i = 0; i < exact.size; i++) ranks.add(exact.top[i]);
+		}
+		if (ranks.size() < limit && q.length >= FUZZY_MIN_LENGTH) {
+			TreeSet<Integer> near = new TreeSet<>();
+			int[] row = new int[q.length + 1];
+			for (int i = 0; i <= q.length; i++) row[i] = i;
+			current.root.near(q, row, near);
+			for (Integer rank : near) {
+				if (ranks.size() >= limit) break;
+				ranks.add(rank);
+			}
+		}
+		return ranks.stream().map(rank -> current.stations[rank]).toList();
+	}
+
+	public void markStale() {
+		stale = true;
+	}
+
+	@Scheduled(fixedDelayString = "${app.search.route-refresh-ms:1000}")
+	public void refreshIfStale() {
+		if (stale) rebuild();
+	}
+
+	@EventListener(ApplicationReadyEvent.class)
+	@Scheduled(initialDelayString = "${app.search.refresh-ms:300000}", fixedDelayString = "${app.search.refresh-ms:300000}")
+	public void rebuild() {
+		stale = false;
+		Station[] stations = stationRepository.findAll().stream()
+				.sorted(Comparator.comparingInt((Station s) -> categoryRank(s.getCategory()))
+						.thenComparing(Station::getName, Comparator.nullsLast(String.CASE_INSENSITIVE_ORDER)))
+				.toArray(Station[]::new);
+		Trie built = new Trie(stations, limit);
+		trie = built;
+		log.debug("Station search index rebuilt with {} stations", stations.length);
+	}
+
+	private static int categoryRank(String category) {
+		int rank = category == null ? -1 : CATEGORIES.indexOf(category.trim().toUpperCase(Locale.ROOT));
+		return rank < 0 ? CATEGORIES.size() : rank;
+	}
+
+	private static String normalize(String text) {
+		return text == null ? "" : text.trim().toLowerCase(Locale.ROOT).replaceAll("\\s+", " ");
+	}
+
+	private static final class Trie {
+		final Station[] stations;
+		final Node root = new Node();
+
+		// Stations come best first, so every node's list fills in rank order
+		Trie(Station[] stations, int limit) {
+			this.stations = stations;
+			for (int rank = 0; rank < stations.length; rank++) {
+				Station s = stations[rank];
+				for (String term : terms(s)) {
+					Node node = root;
+					for (char c : term.toCharArray()) {
+						node = node.children.computeIfAbsent(c, k -> new Node());
+						node.offer(rank, limit);
+					}
+				}
+			}
+		}
+
+		Node find(char[] prefix) {
+			Node node = root;
+			for (int i = 0; i < prefix.length && node != null; i++) node = node.children.get(prefix[i]);
+			return node;
+		}
+
+		private static Set<String> terms(Station s) {
+			Set<String> terms = new LinkedHashSet<>();
+			for (String field : new String[]{s.getCode(), s.getName(), s.getCity()}) {
+				String text = normalize(field);
+				if (text.isEmpty()) continue;
+				terms.add(text);
+				terms.addAll(Arrays.asList(text.split("[\\s\\-/()]+")));
+			}
+			terms.remove("");
+			return terms;
+		}
+	}
+
+	private static final class Node {
+		final Map<Character, Node> children = new HashMap<>();
+		int[] top = new int[0];
+		int size;
+
+		void offer(int rank, int limit) {
+			if (size >= limit || (size > 0 && top[size - 1] == rank)) return;
+			if (size == top.length) top = Arrays.copyOf(top, Math.min(limit, Math.max(4, size * 2)));
+			top[size++] = rank;
+		}
+
+		// Edit distance rows down the trie; a node within one edit of the whole query contributes its stations
+		void near(char[] q, int[] row, Set<Integer> out) {
+			for (Map.Entry<Character, Node> entry : children.entrySet()) {
+				char c = entry.getKey();
+				int[] next = new int[row.length];
+				next[0] = row[0] + 1;
+				int min = next[0];
+				for (int i = 1; i < row.length; i++) {
+					next[i] = Math.min(Math.min(row[i], next[i - 1]) + 1, row[i - 1] + (q[i - 1] == c ? 0 : 1));
+					min = Math.min(min, next[i]);
+				}
+				Node child = entry.getValue();
+				if (next[q.length] <= 1) {
+					for (int i = 0; i < child.size; i++) out.add(child.top[i]);
+				} else if (min <= 1) {
+					child.near(q, next, out);
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,51 @@
+package com.example.ticketbooking.service;
+
+import com.example.ticketbooking.model.TrainSchedule;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+// Tells the route index, journey planner and seat inventory about schedule changes, whichever code path wrote them
+@Component
+public class TrainScheduleListener {
+
+	private final RouteIndex routeIndex;
+	private final JourneyPlanner journeyPlanner;
+	private final SeatInventoryService seatInventoryService;
+
+	public TrainScheduleListener(@Lazy RouteIndex routeIndex, @Lazy JourneyPlanner journeyPlanner,
+			@Lazy SeatInventoryService seatInventoryService) {
+		this.routeIndex = routeIndex;
+		this.journeyPlanner = journeyPlanner;
+		this.seatInventoryService = seatInventoryService;
+	}
+
+	@PostPersist
+	@PostUpdate
+	@PostRemove
+	void changed(TrainSchedule schedule) {
+		if (schedule.getEvent() == null) return;
+		Long eventId = schedule.getEvent().getId();
+		if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+			publish(eventId);
+			return;
+		}
+		TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+			@Override
+			public void afterCommit() {
+				publish(eventId);
+			}
+		});
+	}
+
+	private void publish(Long eventId) {
+		routeIndex.markChanged(eventId);
+		journeyPlanner.markStale();
+		// Stops and leg masks of the cached layout no longer match the route
+		seatInventoryService.invalidateCommitted(eventId);
+	}
+}
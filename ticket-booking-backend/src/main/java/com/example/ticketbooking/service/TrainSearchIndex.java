@@ -0,0 +1,232 @@
+package com.example.ticketbooking.service;
+
+import com.example.ticketbooking.dto.EventDtos;
+import com.example.ticketbooking.model.Event;
+import com.example.ticketbooking.repository.EventRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import java.time.LocalDate;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Predicate;
+
+/**
+ * In-memory index of the train catalogue for the advanced search. Every train
+ * has a slot, and every filterable attribute maps each of its values to a
+ * bitmap of slots, so a query intersects one bitmap per filter and only
+ * range-checks fare and speed on the trains left. Source and destination
+ * match by substring; those are answered from the distinct place names, not
+ * from the trains. Admin changes update the entries of the one train, and a
+ * periodic rebuild picks up changes made on other instances.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class TrainSearchIndex {
+
+	public record Query(String source, String destination, LocalDate date, String trainType, String trainCategory,
+			Boolean hasAC, String trainOperator, Integer minSpeed, Double maxFare, String classType) {}
+
+	// What the search returns for a train, plus the values it is filed under so it can be taken out again
+	private record Entry(EventDtos.EventResponse response, Integer speed, Double fare, String source, String destination,
+			LocalDate date, String trainType, String trainCategory, Boolean hasAC, String trainOperator, String classType) {}
+
+	private final EventRepository eventRepository;
+
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+	private final Map<Long, Integer> slots = new HashMap<>();
+	private final List<Entry> entries = new ArrayList<>();
+	private final Deque<Integer> freeSlots = new ArrayDeque<>();
+	private final BitSet live = new BitSet();
+	private final Postings<String> bySource = new Postings<>();
+	private final Postings<String> byDestination = new Postings<>();
+	private final Postings<LocalDate> byDate = new Postings<>();
+	private final Postings<String> byTrainType = new Postings<>();
+	private final Postings<String> byCategory = new Postings<>();
+	private final Postings<Boolean> byAC = new Postings<>();
+	private final Postings<String> byOperator = new Postings<>();
+	private final Postings<String> byClass = new Postings<>();
+
+	public List<EventDtos.EventResponse> search(Query query) {
+		lock.readLock().lock();
+		try {
+			List<BitSet> filters = new ArrayList<>();
+			if (StringUtils.hasText(query.source())) filters.add(bySource.matching(contains(query.source())));
+			if (StringUtils.hasText(query.destination())) filters.add(byDestination.matching(contains(query.destination())));
+			if (query.date() != null) filters.add(byDate.get(query.date()));
+			if (StringUtils.hasText(query.trainType())) filters.add(byTrainType.get(key(query.trainType())));
+			if (StringUtils.hasText(query.trainCategory())) filters.add(byCategory.get(key(query.trainCategory())));
+			if (query.hasAC() != null) filters.add(byAC.get(query.hasAC()));
+			if (StringUtils.hasText(query.trainOperator())) filters.add(byOperator.get(key(query.trainOperator())));
+			if (StringUtils.hasText(query.classType())) filters.add(byClass.get(key(query.classType())));
+
+			BitSet hits = (BitSet) (filters.isEmpty() ? live : filters.get(0)).clone();
+			for (int i = 1; i < filters.size() && !hits.isEmpty(); i++) hits.and(filters.get(i));
+
+			List<EventDtos.EventResponse> results = new ArrayList<>(hits.cardinality());
+			for (int slot = hits.nextSetBit(0); slot >= 0; slot = hits.nextSetBit(slot + 1)) {
+				Entry entry = entries.get(slot);
+				if (query.minSpeed() != null && (entry.speed() == null || entry.speed() < query.minSpeed())) continue;
+				if (query.maxFare() != null && (entry.fare() == null || entry.fare() > query.maxFare())) continue;
+				results.add(entry.response());
+			}
+			return results;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	// Called once the train is saved; replaces whatever was indexed for it before
+	public void upsert(Event event) {
+		Entry entry = entry(event);
+		lock.writeLock().lock();
+		try {
+			unindex(event.getId());
+			index(event.getId(), entry);
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	public void remove(Long eventId) {
+		lock.writeLock().lock();
+		try {
+			unindex(eventId);
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	@EventListener(ApplicationReadyEvent.class)
+	@Scheduled(initialDelayString = "${app.search.refresh-ms:300000}", fixedDelayString = "${app.search.refresh-ms:300000}")
+	public void rebuild() {
+		List<Event> events = eventRepository.findAll();
+		List<Entry> built = events.stream().map(this::entry).toList();
+		lock.writeLock().lock();
+		try {
+			slots.clear();
+			entries.clear();
+			freeSlots.clear();
+			live.clear();
+			for (Postings<?> postings : List.of(bySource, byDestination, byDate, byTrainType, byCategory, byAC, byOperator, byClass)) {
+				postings.clear();
+			}
+			for (int i = 0; i < events.size(); i++) {
+				index(events.get(i).getId(), built.get(i));
+			}
+		} finally {
+			lock.writeLock().unlock();
+		}
+		log.debug("Train search index rebuilt with {} trains", events.size());
+	}
+
+	private void index(Long eventId, Entry entry) {
+		Integer free = freeSlots.poll();
+		int slot = free != null ? free : entries.size();
+		if (free != null) entries.set(slot, entry);
+		else entries.add(entry);
+		slots.put(eventId, slot);
+		live.set(slot);
+		bySource.add(entry.source(), slot);
+		byDestination.add(entry.destination(), slot);
+		byDate.add(entry.date(), slot);
+		byTrainType.add(entry.trainType(), slot);
+		byCategory.add(entry.trainCategory(), slot);
+		byAC.add(entry.hasAC(), slot);
+		byOperator.add(entry.trainOperator(), slot);
+		byClass.add(entry.classType(), slot);
+	}
+
+	private void unindex(Long eventId) {
+		Integer slot = slots.remove(eventId);
+		if (slot == null) return;
+		Entry entry = entries.get(slot);
+		live.clear(slot);
+		bySource.remove(entry.source(), slot);
+		byDestination.remove(entry.destination(), slot);
+		byDate.remove(entry.date(), slot);
+		byTrainType.remove(entry.trainType(), slot);
+		byCategory.remove(entry.trainCategory(), slot);
+		byAC.remove(entry.hasAC(), slot);
+		byOperator.remove(entry.trainOperator(), slot);
+		byClass.remove(entry.classType(), slot);
+		entries.set(slot, null);
+		freeSlots.push(slot);
+	}
+
+	private Entry entry(Event e) {
+		EventDtos.EventResponse response = EventDtos.EventResponse.builder()
+				.id(e.getId())
+				.name(e.getName())
+				.trainNumber(e.getTrainNumber())
+				.source(e.getSource())
+				.destination(e.getDestination())
+				.venue(e.getVenue())
+				.description(e.getDescription())
+				.startTime(e.getStartTime())
+				.endTime(e.getEndTime())
+				.seatPrice(e.getSeatPrice())
+				.classType(e.getClassType())
+				.build();
+		return new Entry(response, e.getAverageSpeed(), e.getSeatPrice() == null ? null : e.getSeatPrice().doubleValue(),
+				key(e.getSource()), key(e.getDestination()), e.getStartTime() == null ? null : e.getStartTime().toLocalDate(),
+				key(e.getTrainType()), key(e.getTrainCategory()), e.getHasAC(), key(e.getTrainOperator()), key(e.getClassType()));
+	}
+
+	private static String key(String value) {
+		return value == null ? null : value.toLowerCase(Locale.ROOT);
+	}
+
+	private static Predicate<String> contains(String text) {
+		String needle = key(text);
+		return value -> value.contains(needle);
+	}
+
+	// Slots of the trains holding each value of one attribute; trains without a value are not filed
+	private static final class Postings<K> {
+		private final Map<K, BitSet> slotsByValue = new HashMap<>();
+
+		void add(K value, int slot) {
+			if (value != null) slotsByValue.computeIfAbsent(value, k -> new BitSet()).set(slot);
+		}
+
+		void remove(K value, int slot) {
+			if (value == null) return;
+			BitSet slots = slotsByValue.get(value);
+			if (slots == null) return;
+			slots.clear(slot);
+			if (slots.isEmpty()) slotsByValue.remove(value);
+		}
+
+		BitSet get(K value) {
+			BitSet slots = slotsByValue.get(value);
+			return slots != null ? slots : new BitSet();
+		}
+
+		BitSet matching(Predicate<K> predicate) {
+			BitSet union = new BitSet();
+			slotsByValue.forEach((value, slots) -> {
+				if (predicate.test(value)) union.or(slots);
+			});
+			return union;
+		}
+
+		void clear() {
+			slotsByValue.clear();
+		}
+	}
+}
@@ -0,0 +1,94 @@
+package com.example.ticketbooking;
+
+import com.example.ticketbooking.service.BookingAdmissionService;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class BookingAdmissionServiceTest {
+
+    @Test
+    void callers_go_straight_through_until_the_booking_path_is_full() {
+        BookingAdmissionService service = new BookingAdmissionService(10, 1, 120);
+
+        assertThat(service.tryEnter(null)).isEmpty();
+        var queued = service.tryEnter(null);
+        assertThat(queued).get().satisfies(status -> {
+            assertThat(status.admitted()).isFalse();
+            assertThat(status.position()).isEqualTo(1);
+        });
+
+        // Once someone is waiting, newcomers queue behind them even with room inside
+        service.exit();
+        assertThat(service.tryEnter(null)).get().extracting(BookingAdmissionService.QueueStatus::position).isEqualTo(2L);
+    }
+
+    @Test
+    void tickets_are_admitted_in_order_at_the_configured_rate() throws Exception {
+        BookingAdmissionService service = new BookingAdmissionService(2, 8, 120);
+        // A full second's worth of credit is admitted at once, then one ticket per half second
+        List<String> tokens = new ArrayList<>();
+        for (int i = 0; i < 4; i++) tokens.add(service.join().token());
+        String first = tokens.get(0), third = tokens.get(2), fourth = tokens.get(3);
+
+        service.admit();
+        assertThat(service.status(tokens.get(1)).admitted()).isTrue();
+        assertThat(service.status(third).position()).isEqualTo(1);
+        assertThat(service.status(fourth).position()).isEqualTo(2);
+
+        Thread.sleep(600);
+        service.admit();
+        assertThat(service.status(third).admitted()).isTrue();
+        assertThat(service.status(fourth).position()).isEqualTo(1);
+        assertThat(service.tryEnter(fourth)).isPresent();
+        assertThat(service.tryEnter(first)).isEmpty();
+        // An admitted ticket is used up on entry
+        assertThatThrownBy(() -> service.status(first)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void callers_without_a_ticket_do_not_pass_admitted_ticket_holders() {
+        BookingAdmissionService service = new BookingAdmissionService(1000, 1, 120);
+        assertThat(service.tryEnter(null)).isEmpty();
+        String token = service.join().token();
+        service.admit();
+        assertThat(service.status(token).admitted()).isTrue();
+
+        // The slot frees up, but the admitted ticket holder has not come back for it yet
+        service.exit();
+        assertThat(service.tryEnter(null)).isPresent();
+        assertThat(service.tryEnter(token)).isEmpty();
+    }
+
+    @Test
+    void callers_without_a_ticket_use_up_admission_credit() {
+        BookingAdmissionService service = new BookingAdmissionService(1, 8, 120);
+
+        assertThat(service.tryEnter(null)).isEmpty();
+        assertThat(service.tryEnter(null)).get().extracting(BookingAdmissionService.QueueStatus::position).isEqualTo(1L);
+    }
+
+    @Test
+    void an_admitted_ticket_still_waits_for_a_free_slot() throws Exception {
+        BookingAdmissionService service = new BookingAdmissionService(1000, 1, 120);
+        assertThat(service.tryEnter(null)).isEmpty();
+        String token = service.join().token();
+        Thread.sleep(5);
+        service.admit();
+
+        assertThat(service.tryEnter(token)).get().extracting(BookingAdmissionService.QueueStatus::admitted).isEqualTo(true);
+        service.exit();
+        assertThat(service.tryEnter(token)).isEmpty();
+        service.exit();
+    }
+
+    @Test
+    void unknown_tokens_are_rejected() {
+        BookingAdmissionService service = new BookingAdmissionService(10, 8, 120);
+        assertThatThrownBy(() -> service.tryEnter("no-such-token")).isInstanceOf(IllegalArgumentException.class);
+    }
+}
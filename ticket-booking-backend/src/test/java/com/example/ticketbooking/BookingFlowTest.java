@@ -3,15 +3,27 @@ package com.example.ticketbooking;
 import com.example.ticketbooking.dto.BookingDtos;
 import com.example.ticketbooking.model.Booking;
 import com.example.ticketbooking.model.Event;
+import com.example.ticketbooking.model.PNR;
+import com.example.ticketbooking.model.Seat;
+import com.example.ticketbooking.model.Station;
+import com.example.ticketbooking.model.TrainSchedule;
 import com.example.ticketbooking.repository.BookingRepository;
 import com.example.ticketbooking.repository.EventRepository;
 import com.example.ticketbooking.repository.SeatRepository;
+import com.example.ticketbooking.repository.StationRepository;
+import com.example.ticketbooking.repository.TrainScheduleRepository;
 import com.example.ticketbooking.service.BookingService;
+import com.example.ticketbooking.service.SeatInventory;
+import com.example.ticketbooking.service.SeatInventoryService;
+import com.example.ticketbooking.service.SeatLayout;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.context.ActiveProfiles;
 
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalTime;
 import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -32,6 +44,15 @@ class BookingFlowTest {
     @Autowired
     BookingRepository bookingRepository;
 
+    @Autowired
+    SeatInventoryService seatInventoryService;
+
+    @Autowired
+    StationRepository stationRepository;
+
+    @Autowired
+    TrainScheduleRepository trainScheduleRepository;
+
     @Test
     void fullFlow_create_and_verify() throws Exception {
         Event event = eventRepository.findAll().get(0);
@@ -47,16 +68,123 @@ class BookingFlowTest {
         req.setCustomerPhone("9999999999");
 
         var resp = bookingService.createBooking(req);
-        assertThat(resp.getOrderId()).isNotBlank();
         assertThat(resp.getBookingId()).isNotNull();
+        assertThat(resp.getStatus()).isEqualTo(Booking.Status.HELD.name());
+
+        // The payment order is created asynchronously after the hold commits
+        Booking ordered = bookingRepository.findById(resp.getBookingId()).orElseThrow();
+        for (int i = 0; i < 100 && ordered.getStatus() == Booking.Status.HELD; i++) {
+            Thread.sleep(50);
+            ordered = bookingRepository.findById(resp.getBookingId()).orElseThrow();
+        }
+        assertThat(ordered.getStatus()).isEqualTo(Booking.Status.ORDER_CREATED);
+        assertThat(ordered.getPaymentOrderId()).isNotBlank();
 
         BookingDtos.VerifyPaymentRequest verify = new BookingDtos.VerifyPaymentRequest();
         verify.setBookingId(resp.getBookingId());
-        verify.setRazorpayOrderId(resp.getOrderId());
+        verify.setRazorpayOrderId(ordered.getPaymentOrderId());
         verify.setRazorpayPaymentId("pay_test_123");
         verify.setRazorpaySignature("sig_test");
 
         Booking confirmed = bookingService.confirmPayment(verify);
         assertThat(confirmed.getStatus()).isEqualTo(Booking.Status.CONFIRMED);
+        assertThat(confirmed.getPnrs()).hasSize(1);
+        assertThat(bookingRepository.findById(resp.getBookingId()).orElseThrow().getRazorpayPaymentId()).isEqualTo("pay_test_123");
+
+        // A second confirmation, e.g. the client retrying after the webhook won, gets the same answer
+        Booking again = bookingService.confirmPayment(verify);
+        assertThat(again.getStatus()).isEqualTo(Booking.Status.CONFIRMED);
+        assertThat(again.getPnrs()).singleElement().extracting(p -> p.getPnrNumber())
+                .isEqualTo(confirmed.getPnrs().iterator().next().getPnrNumber());
+    }
+
+    @Test
+    void confirm_books_a_hold_this_instance_never_saw() throws Exception {
+        Event event = eventRepository.findAll().get(0);
+        Long seatId = seatRepository.findSlotsByEventId(event.getId()).get(5).getId();
+        LocalDate date = event.getStartTime().toLocalDate().plusDays(30);
+        BookingDtos.CreateBookingRequest req = new BookingDtos.CreateBookingRequest();
+        req.setEventId(event.getId());
+        req.setSeatIds(List.of(seatId));
+        req.setJourneyDate(date.toString());
+        req.setCustomerName("Other Node");
+        req.setCustomerEmail("other-node@example.com");
+        req.setCustomerPhone("9999999999");
+        var resp = bookingService.createBooking(req);
+
+        // As if the hold had been taken on another instance and not relayed here
+        long legs = seatInventoryService.layout(event.getId()).fullMask();
+        SeatInventory inventory = seatInventoryService.inventory(event.getId(), date);
+        assertThat(inventory.transition(List.of(seatId), legs, Seat.Status.RESERVED, Seat.Status.AVAILABLE)).isEmpty();
+
+        Booking ordered = bookingRepository.findById(resp.getBookingId()).orElseThrow();
+        for (int i = 0; i < 100 && ordered.getStatus() == Booking.Status.HELD; i++) {
+            Thread.sleep(50);
+            ordered = bookingRepository.findById(resp.getBookingId()).orElseThrow();
+        }
+        BookingDtos.VerifyPaymentRequest verify = new BookingDtos.VerifyPaymentRequest();
+        verify.setBookingId(resp.getBookingId());
+        verify.setRazorpayOrderId(ordered.getPaymentOrderId());
+        verify.setRazorpayPaymentId("pay_test_other_node");
+        verify.setRazorpaySignature("sig_test");
+
+        Booking confirmed = bookingService.confirmPayment(verify);
+        assertThat(confirmed.getStatus()).isEqualTo(Booking.Status.CONFIRMED);
+        assertThat(inventory.statusOf(seatId, legs)).isEqualTo(Seat.Status.BOOKED);
+        // The ticket is dated for the run it was bought for, not the train's own date
+        PNR pnr = confirmed.getPnrs().iterator().next();
+        assertThat(pnr.getJourneyDate()).isEqualTo(date.atTime(event.getStartTime().toLocalTime()));
+        assertThat(pnr.getDepartureTime()).isEqualTo(pnr.getJourneyDate());
+        assertThat(pnr.getArrivalTime()).isEqualTo(pnr.getDepartureTime().plus(Duration.between(event.getStartTime(), event.getEndTime())));
+    }
+
+    @Test
+    void a_segment_ticket_names_its_own_stops_and_times() throws Exception {
+        List<Event> events = eventRepository.findAll();
+        Event event = events.get(events.size() - 1);
+        List<Station> stations = stationRepository.findAll();
+        Station origin = stations.get(0), boarding = stations.get(1), alighting = stations.get(2);
+        // Overnight from the second halt to the third
+        trainScheduleRepository.saveAll(List.of(
+                halt(event, origin, 1, null, LocalTime.of(6, 0), "1"),
+                halt(event, boarding, 2, LocalTime.of(10, 0), LocalTime.of(10, 10), "1"),
+                halt(event, alighting, 3, LocalTime.of(2, 30), null, "2")));
+        SeatLayout layout = seatInventoryService.layout(event.getId());
+        LocalDate date = event.getStartTime().toLocalDate().plusDays(50);
+        while (!layout.runsOn(date)) date = date.plusDays(1);
+
+        BookingDtos.CreateBookingRequest req = new BookingDtos.CreateBookingRequest();
+        req.setEventId(event.getId());
+        req.setSeatIds(List.of(seatRepository.findSlotsByEventId(event.getId()).get(0).getId()));
+        req.setJourneyDate(date.toString());
+        req.setFromStation(boarding.getCode());
+        req.setToStation(alighting.getCode());
+        req.setCustomerName("Segment User");
+        req.setCustomerEmail("segment@example.com");
+        req.setCustomerPhone("9999999999");
+        var resp = bookingService.createBooking(req);
+
+        Booking ordered = bookingRepository.findById(resp.getBookingId()).orElseThrow();
+        for (int i = 0; i < 100 && ordered.getStatus() == Booking.Status.HELD; i++) {
+            Thread.sleep(50);
+            ordered = bookingRepository.findById(resp.getBookingId()).orElseThrow();
+        }
+        BookingDtos.VerifyPaymentRequest verify = new BookingDtos.VerifyPaymentRequest();
+        verify.setBookingId(resp.getBookingId());
+        verify.setRazorpayOrderId(ordered.getPaymentOrderId());
+        verify.setRazorpayPaymentId("pay_test_segment");
+        verify.setRazorpaySignature("sig_test");
+
+        PNR pnr = bookingService.confirmPayment(verify).getPnrs().iterator().next();
+        assertThat(pnr.getSourceStation()).isEqualTo(boarding.getName());
+        assertThat(pnr.getDestinationStation()).isEqualTo(alighting.getName());
+        assertThat(pnr.getDepartureTime()).isEqualTo(date.atTime(10, 10));
+        assertThat(pnr.getArrivalTime()).isEqualTo(date.plusDays(1).atTime(2, 30));
+        assertThat(pnr.getJourneyDate()).isEqualTo(pnr.getDepartureTime());
+    }
+
+    private static TrainSchedule halt(Event event, Station station, int sequence, LocalTime arrival, LocalTime departure, String day) {
+        return TrainSchedule.builder().event(event).station(station).sequenceNumber(sequence)
+                .arrivalTime(arrival).departureTime(departure).dayNumber(day).isHalt(true).build();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,56 @@
+package com.example.ticketbooking;
+
+import com.example.ticketbooking.model.Seat;
+import com.example.ticketbooking.model.SeatChangeRecord;
+import com.example.ticketbooking.repository.SeatChangeRecordRepository;
+import com.example.ticketbooking.service.DatabaseSeatEventBus;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+
+class DatabaseSeatEventBusTest {
+
+    @Test
+    void a_change_committed_after_its_id_was_skipped_is_still_delivered() {
+        SeatChangeRecordRepository repository = Mockito.mock(SeatChangeRecordRepository.class);
+        Mockito.when(repository.findMaxId()).thenReturn(0L);
+        Mockito.when(repository.findByIdGreaterThanOrderById(anyLong(), any())).thenReturn(List.of());
+        Mockito.when(repository.findByIdGreaterThanOrderById(eq(0L), any())).thenReturn(List.of(row(1, 11), row(3, 13)));
+        DatabaseSeatEventBus bus = new DatabaseSeatEventBus(repository, 500, 0, 60);
+        List<Long> delivered = new ArrayList<>();
+        bus.subscribe(change -> delivered.addAll(change.seatIds()));
+        bus.start();
+
+        // Id 2 is still uncommitted, and the gap timeout is zero, so the poller moves past it
+        bus.poll();
+        assertThat(delivered).containsExactly(11L, 13L);
+
+        Mockito.when(repository.findByIdInOrderById(List.of(2L))).thenReturn(List.of(row(2, 12)));
+        bus.poll();
+        bus.poll();
+        assertThat(delivered).containsExactly(11L, 13L, 12L);
+    }
+
+    private static SeatChangeRecord row(long id, long seatId) {
+        return SeatChangeRecord.builder()
+                .id(id)
+                .node("other-instance")
+                .eventId(1L)
+                .journeyDate(LocalDate.of(2030, 1, 1))
+                .legs(1L)
+                .fromStatus(Seat.Status.AVAILABLE)
+                .toStatus(Seat.Status.RESERVED)
+                .seatIds(String.valueOf(seatId))
+                .createdAt(OffsetDateTime.now())
+                .build();
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.ticketbooking;
+
+import com.example.ticketbooking.service.IdempotencyService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class IdempotencyServiceTest {
+
+    private final IdempotencyService service = new IdempotencyService(new ObjectMapper(), 2, 60, 1);
+    private final AtomicInteger calls = new AtomicInteger();
+
+    @Test
+    void replays_the_first_response_for_the_same_request() {
+        ResponseEntity<?> first = service.execute("op", "k1", Map.of("seat", 1), this::ok);
+        ResponseEntity<?> second = service.execute("op", "k1", Map.of("seat", 1), this::ok);
+
+        assertThat(second).isSameAs(first);
+        assertThat(calls.get()).isEqualTo(1);
+    }
+
+    @Test
+    void refuses_a_key_reused_for_a_different_request() {
+        service.execute("op", "k1", Map.of("seat", 1), this::ok);
+        ResponseEntity<?> reused = service.execute("op", "k1", Map.of("seat", 2), this::ok);
+
+        assertThat(reused.getStatusCode()).isEqualTo(HttpStatus.UNPROCESSABLE_ENTITY);
+        assertThat(calls.get()).isEqualTo(1);
+    }
+
+    @Test
+    void does_not_replay_server_errors() {
+        service.execute("op", "k1", Map.of(), () -> ResponseEntity.internalServerError().build());
+        ResponseEntity<?> retried = service.execute("op", "k1", Map.of(), this::ok);
+
+        assertThat(retried.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(calls.get()).isEqualTo(1);
+    }
+
+    @Test
+    void a_stale_queue_entry_does_not_evict_the_newer_response() {
+        service.execute("op", "a", Map.of(), () -> ResponseEntity.internalServerError().build());
+        service.execute("op", "b", Map.of(), this::ok);
+        ResponseEntity<?> a = service.execute("op", "a", Map.of(), this::ok);
+        // The store is full now; the oldest live entry is b, not the retried a
+        service.execute("op", "c", Map.of(), this::ok);
+
+        assertThat(service.execute("op", "a", Map.of(), this::ok)).isSameAs(a);
+        assertThat(calls.get()).isEqualTo(3);
+        service.execute("op", "b", Map.of(), this::ok);
+        assertThat(calls.get()).isEqualTo(4);
+    }
+
+    private ResponseEntity<?> ok() {
+        return ResponseEntity.ok(Map.of("call", calls.incrementAndGet()));
+    }
+}
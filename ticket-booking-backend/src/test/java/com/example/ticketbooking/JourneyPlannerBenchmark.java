@@ -0,0 +1,98 @@
+package com.example.ticketbooking;
+
+import com.example.ticketbooking.repository.TrainScheduleRepository;
+import com.example.ticketbooking.service.JourneyPlanner;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.mockito.Mockito;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * One journey query with up to three changes over a synthetic timetable of
+ * trains running between random halts of a few hundred stations. Run with
+ * {@code mvn test -Dtest=JourneyPlannerBenchmark -Dbenchmark=true}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class JourneyPlannerBenchmark {
+
+    private static final int STATIONS = 400;
+
+    @Param({"1000", "5000"})
+    public int trains;
+
+    private JourneyPlanner planner;
+    private final Random random = new Random(42);
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        List<TrainScheduleRepository.HaltView> halts = new ArrayList<>();
+        for (long train = 1; train <= trains; train++) {
+            int stops = 8 + random.nextInt(20);
+            int minute = random.nextInt(24 * 60);
+            for (int seq = 1; seq <= stops; seq++) {
+                LocalTime arrival = LocalTime.MIN.plusMinutes(minute);
+                minute += seq == 1 ? 0 : 2;
+                LocalTime departure = LocalTime.MIN.plusMinutes(minute);
+                halts.add(new Halt(train, "T" + train, seq, "S" + random.nextInt(STATIONS), arrival, departure));
+                minute += 20 + random.nextInt(90);
+            }
+        }
+        TrainScheduleRepository repository = Mockito.mock(TrainScheduleRepository.class);
+        Mockito.when(repository.findHalts()).thenReturn(halts);
+        planner = new JourneyPlanner(repository, 30, 48, 3);
+        planner.rebuild();
+    }
+
+    @Benchmark
+    public Object plan() {
+        return planner.plan("S" + random.nextInt(STATIONS), "S" + random.nextInt(STATIONS), LocalDate.of(2025, 1, 1),
+                LocalTime.of(random.nextInt(24), 0), 3);
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    void run() throws Exception {
+        assertThat(new Runner(new OptionsBuilder().include(JourneyPlannerBenchmark.class.getSimpleName()).build()).run()).isNotEmpty();
+    }
+
+    private record Halt(Long eventId, String trainNumber, Integer sequenceNumber, String stationCode,
+            LocalTime arrivalTime, LocalTime departureTime) implements TrainScheduleRepository.HaltView {
+        public Long getEventId() { return eventId; }
+        public String getTrainNumber() { return trainNumber; }
+        public String getTrainName() { return trainNumber; }
+        public Integer getSequenceNumber() { return sequenceNumber; }
+        public String getStationCode() { return stationCode; }
+        public String getStationName() { return stationCode; }
+        public LocalTime getArrivalTime() { return arrivalTime; }
+        public LocalTime getDepartureTime() { return departureTime; }
+        public String getDayNumber() { return null; }
+        public String getRunningDays() { return null; }
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.ticketbooking;
+
+import com.example.ticketbooking.security.JwtAuthFilter;
+import com.example.ticketbooking.security.JwtService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Cost of {@link JwtAuthFilter} for one authenticated request, with the
+ * verified-token cache on and off. Run with
+ * {@code mvn test -Dtest=JwtAuthFilterBenchmark -Dbenchmark=true}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class JwtAuthFilterBenchmark {
+
+    @Param({"true", "false"})
+    public boolean cached;
+
+    private JwtAuthFilter filter;
+    private MockHttpServletRequest request;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        JwtService jwtService = new JwtService();
+        ReflectionTestUtils.setField(jwtService, "secret", "changemechangemechangemechangemechangemechangeme");
+        ReflectionTestUtils.setField(jwtService, "ttlMs", 3_600_000L);
+        ReflectionTestUtils.setField(jwtService, "cacheMaxEntries", cached ? 10_000 : 0);
+        ReflectionTestUtils.invokeMethod(jwtService, "init");
+        filter = new JwtAuthFilter(jwtService);
+
+        request = new MockHttpServletRequest("GET", "/api/bookings/my");
+        request.addHeader("Authorization", "Bearer " + jwtService.generateToken("bench@example.com", Map.of("name", "Bench", "role", "USER")));
+    }
+
+    @Benchmark
+    public Object filter() throws Exception {
+        request.removeAttribute(JwtAuthFilter.class.getName() + ".FILTERED");
+        filter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+        Object principal = SecurityContextHolder.getContext().getAuthentication().getPrincipal();
+        SecurityContextHolder.clearContext();
+        return principal;
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    void run() throws Exception {
+        assertThat(new Runner(new OptionsBuilder().include(JwtAuthFilterBenchmark.class.getSimpleName()).build()).run()).isNotEmpty();
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.ticketbooking;
+
+import com.example.ticketbooking.dto.BookingDtos;
+import com.example.ticketbooking.model.Event;
+import com.example.ticketbooking.repository.EventRepository;
+import com.example.ticketbooking.repository.SeatRepository;
+import com.example.ticketbooking.security.JwtService;
+import com.example.ticketbooking.service.SeatInventoryService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.atLeast;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.verify;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {"app.booking.claim.mode=OPTIMISTIC", "app.booking.claim.max-attempts=3", "app.booking.claim.backoff-ms=1"})
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class OptimisticClaimConflictTest {
+
+    @Autowired
+    MockMvc mockMvc;
+
+    @Autowired
+    ObjectMapper objectMapper;
+
+    @Autowired
+    JwtService jwtService;
+
+    @Autowired
+    EventRepository eventRepository;
+
+    @Autowired
+    SeatInventoryService seatInventoryService;
+
+    @SpyBean
+    SeatRepository seatRepository;
+
+    @Test
+    void a_claim_that_keeps_losing_its_race_is_answered_with_409() throws Exception {
+        Event event = eventRepository.findAll().get(0);
+        Long seatId = seatRepository.findSlotsByEventId(event.getId()).get(10).getId();
+        LocalDate date = event.getStartTime().toLocalDate().plusDays(45);
+        long legs = seatInventoryService.layout(event.getId()).fullMask();
+        int reservedBefore = seatInventoryService.coachAvailability(event.getId(), date, legs).get(0).reserved();
+        // Every version check fails, as if another instance claimed the seat each time
+        doReturn(0).when(seatRepository).bumpVersion(any(), any());
+
+        BookingDtos.CreateBookingRequest req = new BookingDtos.CreateBookingRequest();
+        req.setEventId(event.getId());
+        req.setSeatIds(List.of(seatId));
+        req.setJourneyDate(date.toString());
+        req.setCustomerName("Optimistic Buyer");
+        req.setCustomerEmail("optimistic@example.com");
+        req.setCustomerPhone("9999999999");
+
+        mockMvc.perform(post("/api/bookings")
+                        .header("Authorization", "Bearer " + jwtService.generateToken("optimistic@example.com", Map.of()))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsBytes(req)))
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$.error").value("CONFLICT"));
+
+        verify(seatRepository, atLeast(3)).bumpVersion(any(), any());
+        // The rolled back holds gave the seat back to the in-memory inventory
+        assertThat(seatInventoryService.coachAvailability(event.getId(), date, legs).get(0).reserved())
+                .isEqualTo(reservedBefore);
+    }
+}
@@ -0,0 +1,136 @@
+package com.example.ticketbooking;
+
+import com.example.ticketbooking.model.Booking;
+import com.example.ticketbooking.model.BookingPassenger;
+import com.example.ticketbooking.model.Coach;
+import com.example.ticketbooking.model.Event;
+import com.example.ticketbooking.model.Seat;
+import com.example.ticketbooking.repository.EventRepository;
+import com.example.ticketbooking.repository.SeatRepository;
+import jakarta.persistence.EntityManager;
+import org.hibernate.Session;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Row-by-row versus batched writes for the two insert-heavy paths: creating a
+ * rake, and creating bookings with their seats and cascaded passengers.
+ * Everything runs in a transaction that is rolled back.
+ * Run with {@code mvn test -Dtest=PersistenceBatchBenchmark -Dbenchmark=true},
+ * and point DB_URL at MySQL for figures that mean anything.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class PersistenceBatchBenchmark {
+
+    private static final int COACHES = 20;
+    private static final int SEATS_PER_COACH = 72;
+    private static final int BOOKINGS = 500;
+    private static final int PASSENGERS = 4;
+
+    @Autowired
+    EntityManager entityManager;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Autowired
+    EventRepository eventRepository;
+
+    @Autowired
+    SeatRepository seatRepository;
+
+    @Test
+    void rakeAndBookingCreation() {
+        for (int batchSize : new int[]{1, 50, 1, 50}) {
+            double seatsPerSecond = measure(batchSize, this::createRake);
+            double bookingRowsPerSecond = measure(batchSize, this::createBookings);
+            System.out.printf("batch_size=%-3d rake: %,10.0f seats/s   bookings: %,10.0f rows/s%n",
+                    batchSize, seatsPerSecond, bookingRowsPerSecond);
+        }
+    }
+
+    private interface Workload {
+        // Returns how many rows the timed part wrote
+        int run(long[] timer);
+    }
+
+    private double measure(int batchSize, Workload workload) {
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        return tx.execute(status -> {
+            entityManager.unwrap(Session.class).setJdbcBatchSize(batchSize);
+            long[] timer = new long[1];
+            int rows = workload.run(timer);
+            status.setRollbackOnly();
+            return rows / (timer[0] / 1e9);
+        });
+    }
+
+    private int createRake(long[] timer) {
+        long start = System.nanoTime();
+        Event event = eventRepository.save(event());
+        List<Seat> seats = new ArrayList<>(COACHES * SEATS_PER_COACH);
+        for (int c = 1; c <= COACHES; c++) {
+            Coach coach = Coach.builder().event(event).code("S" + c).classType("SL").position(c).build();
+            entityManager.persist(coach);
+            for (int n = 1; n <= SEATS_PER_COACH; n++) {
+                seats.add(Seat.builder().event(event).coach(coach).rowLabel("S" + c).seatNumber(n)
+                        .status(Seat.Status.AVAILABLE).build());
+            }
+        }
+        seatRepository.saveAll(seats);
+        entityManager.flush();
+        timer[0] = System.nanoTime() - start;
+        return seats.size();
+    }
+
+    // A held booking writes its row, a booking_seats row per seat and a cascaded row per passenger
+    private int createBookings(long[] timer) {
+        Event event = eventRepository.save(event());
+        Coach coach = Coach.builder().event(event).code("S1").classType("SL").position(1).build();
+        entityManager.persist(coach);
+        List<Seat> seats = new ArrayList<>(BOOKINGS * PASSENGERS);
+        for (int n = 1; n <= BOOKINGS * PASSENGERS; n++) {
+            Seat seat = Seat.builder().event(event).coach(coach).rowLabel("S1").seatNumber(n).status(Seat.Status.AVAILABLE).build();
+            entityManager.persist(seat);
+            seats.add(seat);
+        }
+        entityManager.flush();
+
+        long start = System.nanoTime();
+        OffsetDateTime now = OffsetDateTime.now();
+        for (int i = 0; i < BOOKINGS; i++) {
+            Booking booking = Booking.builder().event(event).customerName("Bench").customerEmail("bench@example.com")
+                    .customerPhone("9999999999").totalAmount(BigDecimal.TEN).status(Booking.Status.HELD)
+                    .createdAt(now).reservationExpiresAt(now.plusMinutes(10)).build();
+            for (int p = 0; p < PASSENGERS; p++) {
+                Seat seat = seats.get(i * PASSENGERS + p);
+                booking.getSeats().add(seat);
+                booking.getPassengers().add(BookingPassenger.builder().booking(booking).seat(seat)
+                        .name("Passenger " + p).age(30).gender("OTHER").build());
+            }
+            entityManager.persist(booking);
+        }
+        entityManager.flush();
+        timer[0] = System.nanoTime() - start;
+        return BOOKINGS * (1 + 2 * PASSENGERS);
+    }
+
+    private static Event event() {
+        return Event.builder().name("Benchmark Express").venue("BENCH").seatPrice(BigDecimal.TEN)
+                .startTime(LocalDateTime.now().plusDays(1)).endTime(LocalDateTime.now().plusDays(1).plusHours(6))
+                .build();
+    }
+}
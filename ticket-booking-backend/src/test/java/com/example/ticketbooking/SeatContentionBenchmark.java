@@ -0,0 +1,129 @@
+package com.example.ticketbooking;
+
+import com.example.ticketbooking.dto.BookingDtos;
+import com.example.ticketbooking.model.Event;
+import com.example.ticketbooking.model.Seat;
+import com.example.ticketbooking.repository.EventRepository;
+import com.example.ticketbooking.repository.SeatRepository;
+import com.example.ticketbooking.service.BookingService;
+import com.example.ticketbooking.service.SeatClaimService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Buyers racing for seats of the first coach of the seeded rake, once per
+ * claim mode and concurrency level. Each round books a fresh journey date so
+ * rounds start from an empty coach. Run with
+ * {@code mvn test -Dtest=SeatContentionBenchmark -Dbenchmark=true}; point
+ * DB_URL at MySQL to compare the modes under real row locking.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class SeatContentionBenchmark {
+
+    private static final int REQUESTS = 512;
+    private static final int SEATS_PER_REQUEST = 2;
+
+    @Autowired
+    BookingService bookingService;
+
+    @Autowired
+    SeatClaimService seatClaimService;
+
+    @Autowired
+    EventRepository eventRepository;
+
+    @Autowired
+    SeatRepository seatRepository;
+
+    @Test
+    void claimModes() throws Exception {
+        Event event = eventRepository.findAll().get(0);
+        List<Long> coach = seatRepository.findByEvent_Id(event.getId()).stream()
+                .filter(s -> s.getCoach() == null || s.getCoach().getId().equals(firstCoachId(event)))
+                .map(Seat::getId)
+                .toList();
+        LocalDate date = event.getStartTime().toLocalDate().plusDays(30);
+        SeatClaimService.Mode original = seatClaimService.getMode();
+        try {
+            for (SeatClaimService.Mode mode : SeatClaimService.Mode.values()) {
+                ReflectionTestUtils.setField(seatClaimService, "mode", mode);
+                for (int buyers : new int[]{1, 16, 256}) {
+                    date = date.plusDays(1);
+                    run(mode, buyers, event.getId(), coach, date);
+                }
+            }
+        } finally {
+            ReflectionTestUtils.setField(seatClaimService, "mode", original);
+        }
+    }
+
+    private Long firstCoachId(Event event) {
+        return seatRepository.findSlotsByEventId(event.getId()).get(0).getCoachId();
+    }
+
+    private void run(SeatClaimService.Mode mode, int buyers, Long eventId, List<Long> coach, LocalDate date) throws Exception {
+        AtomicInteger held = new AtomicInteger();
+        AtomicInteger taken = new AtomicInteger();
+        AtomicInteger lostRaces = new AtomicInteger();
+        long start = System.nanoTime();
+        try (ExecutorService pool = Executors.newFixedThreadPool(buyers)) {
+            List<Future<?>> futures = new ArrayList<>(REQUESTS);
+            for (int i = 0; i < REQUESTS; i++) {
+                futures.add(pool.submit(() -> {
+                    try {
+                        bookingService.createBooking(request(eventId, pick(coach), date));
+                        held.incrementAndGet();
+                    } catch (OptimisticLockingFailureException e) {
+                        lostRaces.incrementAndGet();
+                    } catch (IllegalStateException e) {
+                        taken.incrementAndGet();
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> f : futures) f.get();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%-11s buyers=%-3d %,8.0f req/s  held=%-4d taken=%-4d gave-up=%d%n",
+                mode, buyers, REQUESTS / seconds, held.get(), taken.get(), lostRaces.get());
+        assertThat(held.get() * SEATS_PER_REQUEST).as("seats sold twice").isLessThanOrEqualTo(coach.size());
+    }
+
+    private static List<Long> pick(List<Long> coach) {
+        List<Long> seats = new ArrayList<>(SEATS_PER_REQUEST);
+        while (seats.size() < SEATS_PER_REQUEST) {
+            Long id = coach.get(ThreadLocalRandom.current().nextInt(coach.size()));
+            if (!seats.contains(id)) seats.add(id);
+        }
+        return seats;
+    }
+
+    private static BookingDtos.CreateBookingRequest request(Long eventId, List<Long> seats, LocalDate date) {
+        BookingDtos.CreateBookingRequest req = new BookingDtos.CreateBookingRequest();
+        req.setEventId(eventId);
+        req.setSeatIds(seats);
+        req.setJourneyDate(date.toString());
+        req.setCustomerName("Bench Buyer");
+        req.setCustomerEmail("bench@example.com");
+        req.setCustomerPhone("9999999999");
+        return req;
+    }
+}
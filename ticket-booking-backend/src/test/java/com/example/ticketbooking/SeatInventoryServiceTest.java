@@ -0,0 +1,142 @@
+package com.example.ticketbooking;
+
+import com.example.ticketbooking.model.Booking;
+import com.example.ticketbooking.model.Seat;
+import com.example.ticketbooking.repository.BookingRepository;
+import com.example.ticketbooking.repository.EventRepository;
+import com.example.ticketbooking.repository.SeatRepository;
+import com.example.ticketbooking.repository.TrainScheduleRepository;
+import com.example.ticketbooking.service.LocalSeatEventBus;
+import com.example.ticketbooking.service.SeatEventBus;
+import com.example.ticketbooking.service.SeatInventory;
+import com.example.ticketbooking.service.SeatInventoryService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SeatInventoryServiceTest {
+
+    private static final LocalDate TODAY = LocalDate.now();
+
+    private SeatInventoryService service;
+    private BookingRepository bookings;
+
+    @BeforeEach
+    void setUp() {
+        EventRepository events = Mockito.mock(EventRepository.class);
+        Mockito.when(events.findRunById(1L)).thenReturn(Optional.of(new EventRepository.RunView() {
+            public LocalDateTime getStartTime() { return TODAY.minusDays(30).atTime(9, 0); }
+            public String getRunningDays() { return "MON,THU"; }
+        }));
+        SeatRepository seats = Mockito.mock(SeatRepository.class);
+        Mockito.when(seats.findSlotsByEventId(1L)).thenReturn(List.of(
+                slot(101, 10, "SL"), slot(102, 10, "SL"), slot(103, 10, "SL"), slot(104, 10, "SL"),
+                slot(201, 20, "3A"), slot(202, 20, "3A")));
+        TrainScheduleRepository schedules = Mockito.mock(TrainScheduleRepository.class);
+        Mockito.when(schedules.findStopsByEventId(1L)).thenReturn(List.of(stop(1, "A"), stop(2, "B"), stop(3, "C"), stop(4, "D")));
+        bookings = Mockito.mock(BookingRepository.class);
+        service = new SeatInventoryService(seats, events, bookings, schedules, new LocalSeatEventBus());
+        ReflectionTestUtils.setField(service, "saleHorizonDays", 60);
+    }
+
+    @Test
+    void sells_running_days_within_the_horizon() {
+        LocalDate monday = TODAY.plusDays(1).with(TemporalAdjusters.nextOrSame(DayOfWeek.MONDAY));
+        assertThat(service.saleDate(1L, monday)).isEqualTo(monday);
+        assertThat(service.saleDate(1L, monday.plusDays(3))).isEqualTo(monday.plusDays(3));
+    }
+
+    @Test
+    void rejects_days_the_train_does_not_run() {
+        LocalDate tuesday = TODAY.plusDays(1).with(TemporalAdjusters.nextOrSame(DayOfWeek.TUESDAY));
+        assertThatThrownBy(() -> service.saleDate(1L, tuesday)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> service.inventory(1L, tuesday)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void rejects_past_dates_and_dates_beyond_the_horizon() {
+        LocalDate pastMonday = TODAY.minusDays(1).with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+        LocalDate lateMonday = TODAY.plusDays(61).with(TemporalAdjusters.nextOrSame(DayOfWeek.MONDAY));
+        assertThatThrownBy(() -> service.saleDate(1L, pastMonday)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> service.saleDate(1L, lateMonday)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void the_trains_own_date_stays_readable() {
+        assertThat(service.saleDate(1L, null)).isEqualTo(TODAY.minusDays(30));
+    }
+
+    @Test
+    void a_rolled_back_hold_frees_the_seat_and_is_reported() {
+        LocalDate monday = TODAY.plusDays(1).with(TemporalAdjusters.nextOrSame(DayOfWeek.MONDAY));
+        long legs = service.legs(1L, "A", "D");
+        List<SeatEventBus.SeatChange> undone = new ArrayList<>();
+        service.onRolledBack(undone::add);
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            service.hold(1L, monday, legs, List.of(101L));
+            assertThat(service.inventory(1L, monday).statusOf(101L, legs)).isEqualTo(Seat.Status.RESERVED);
+            TransactionSynchronizationManager.getSynchronizations()
+                    .forEach(s -> s.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        assertThat(service.inventory(1L, monday).statusOf(101L, legs)).isEqualTo(Seat.Status.AVAILABLE);
+        assertThat(undone).singleElement().satisfies(change -> {
+            assertThat(change.journeyDate()).isEqualTo(monday);
+            assertThat(change.seatIds()).containsExactly(101L);
+        });
+    }
+
+    @Test
+    void preload_builds_the_date_from_one_query_for_all_events() {
+        LocalDate monday = TODAY.plusDays(1).with(TemporalAdjusters.nextOrSame(DayOfWeek.MONDAY));
+        BookingRepository.EventHeldSeatView held = Mockito.mock(BookingRepository.EventHeldSeatView.class);
+        Mockito.when(held.getEventId()).thenReturn(1L);
+        Mockito.when(held.getJourneyDate()).thenReturn(monday);
+        Mockito.when(held.getSeatId()).thenReturn(102L);
+        Mockito.when(held.getStatus()).thenReturn(Booking.Status.HELD);
+        Mockito.when(held.getFromStop()).thenReturn(1);
+        Mockito.when(held.getToStop()).thenReturn(3);
+        Mockito.when(bookings.findHeldSeatsByEventIds(List.of(1L), monday, List.of(Booking.Status.HELD, Booking.Status.ORDER_CREATED,
+                Booking.Status.PENDING_PAYMENT, Booking.Status.CONFIRMED))).thenReturn(List.of(held));
+
+        service.preload(List.of(1L), monday);
+
+        SeatInventory inventory = service.inventory(1L, monday);
+        assertThat(inventory.statusOf(102L, service.legs(1L, "A", "C"))).isEqualTo(Seat.Status.RESERVED);
+        assertThat(inventory.statusOf(102L, service.legs(1L, "C", "D"))).isEqualTo(Seat.Status.AVAILABLE);
+        Mockito.verify(bookings, Mockito.never()).findHeldSeats(Mockito.any(), Mockito.any(), Mockito.anyBoolean(), Mockito.any());
+    }
+
+    private static SeatRepository.SeatSlotView slot(long id, long coachId, String classType) {
+        return new SeatRepository.SeatSlotView() {
+            public Long getId() { return id; }
+            public Long getCoachId() { return coachId; }
+            public String getClassType() { return classType; }
+        };
+    }
+
+    private static TrainScheduleRepository.StopView stop(int sequence, String code) {
+        return new TrainScheduleRepository.StopView() {
+            public Integer getSequenceNumber() { return sequence; }
+            public String getStationCode() { return code; }
+        };
+    }
+}
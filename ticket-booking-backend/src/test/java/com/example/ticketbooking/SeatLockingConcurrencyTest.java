@@ -0,0 +1,154 @@
+package com.example.ticketbooking;
+
+import com.example.ticketbooking.dto.BookingDtos;
+import com.example.ticketbooking.model.Booking;
+import com.example.ticketbooking.model.Event;
+import com.example.ticketbooking.model.Seat;
+import com.example.ticketbooking.repository.BookingRepository;
+import com.example.ticketbooking.repository.EventRepository;
+import com.example.ticketbooking.repository.SeatRepository;
+import com.example.ticketbooking.service.BookingService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.PessimisticLockingFailureException;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = "app.booking.claim.mode=PESSIMISTIC")
+@ActiveProfiles("test")
+class SeatLockingConcurrencyTest {
+
+    private static final int BUYERS = 32;
+    private static final int PARTY = 2;
+
+    @Autowired
+    BookingService bookingService;
+
+    @Autowired
+    EventRepository eventRepository;
+
+    @Autowired
+    SeatRepository seatRepository;
+
+    @Autowired
+    BookingRepository bookingRepository;
+
+    @Test
+    void overlapping_selections_in_any_order_never_deadlock() throws Exception {
+        Event event = eventRepository.findAll().get(0);
+        List<Long> seats = seatRepository.findSlotsByEventId(event.getId()).stream()
+                .limit(4)
+                .map(s -> s.getId())
+                .toList();
+        LocalDate date = event.getStartTime().toLocalDate().plusDays(60);
+        Map<Integer, AtomicInteger> heldPerRound = new ConcurrentHashMap<>();
+        AtomicInteger rejected = new AtomicInteger();
+        List<Throwable> failures = new CopyOnWriteArrayList<>();
+
+        race(i -> {
+            // Four rounds on four dates; every buyer in a round wants all four seats, each in its own order
+            int round = i % 4;
+            List<Long> mine = new ArrayList<>(seats);
+            Collections.rotate(mine, i);
+            if (i % 2 == 0) Collections.reverse(mine);
+            try {
+                bookingService.createBooking(request(event.getId(), mine, date.plusDays(round), 0));
+                heldPerRound.computeIfAbsent(round, r -> new AtomicInteger()).incrementAndGet();
+            } catch (IllegalStateException e) {
+                rejected.incrementAndGet();
+            } catch (Exception e) {
+                failures.add(e);
+            }
+        });
+
+        assertThat(failures).as("deadlocks or lock timeouts").isEmpty();
+        assertThat(heldPerRound).hasSize(4);
+        heldPerRound.values().forEach(held -> assertThat(held.get()).isEqualTo(1));
+        assertThat(rejected.get()).isEqualTo(BUYERS - 4);
+    }
+
+    @Test
+    void auto_assigned_buyers_skip_each_others_seats() throws Exception {
+        Event event = eventRepository.findAll().get(0);
+        Long coachId = seatRepository.findSlotsByEventId(event.getId()).get(0).getCoachId();
+        LocalDate date = event.getStartTime().toLocalDate().plusDays(90);
+        List<Long> bookingIds = new CopyOnWriteArrayList<>();
+        List<Throwable> failures = new CopyOnWriteArrayList<>();
+
+        race(i -> {
+            try {
+                var resp = bookingService.createBooking(request(event.getId(), List.of(), date, PARTY, coachId));
+                bookingIds.add(resp.getBookingId());
+            } catch (Exception e) {
+                failures.add(e);
+            }
+        });
+
+        assertThat(failures).noneMatch(e -> e instanceof PessimisticLockingFailureException);
+        // Everyone either got a full party's worth of seats or found the coach full; no seat went to two buyers
+        long coachSeats = seatRepository.findByCoach_Id(coachId).size();
+        assertThat(bookingIds.size()).isEqualTo((int) Math.min(BUYERS, coachSeats / PARTY));
+        assertThat(failures).hasSize(BUYERS - bookingIds.size()).allMatch(e -> e instanceof IllegalStateException);
+        List<Booking> bookings = bookingRepository.findWithSeatsByIdIn(bookingIds);
+        assertThat(bookings).hasSize(bookingIds.size()).allSatisfy(b -> assertThat(b.getSeats()).hasSize(PARTY));
+        List<Long> seatIds = bookings.stream().flatMap(b -> b.getSeats().stream()).map(Seat::getId).toList();
+        assertThat(seatIds).doesNotHaveDuplicates();
+    }
+
+    private interface Buyer {
+        void buy(int index) throws Exception;
+    }
+
+    private static void race(Buyer buyer) throws Exception {
+        CountDownLatch start = new CountDownLatch(1);
+        try (ExecutorService pool = Executors.newFixedThreadPool(BUYERS)) {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < BUYERS; i++) {
+                int index = i;
+                futures.add(pool.submit(() -> {
+                    start.await();
+                    buyer.buy(index);
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> f : futures) f.get();
+        }
+    }
+
+    private static BookingDtos.CreateBookingRequest request(Long eventId, List<Long> seats, LocalDate date, int passengers) {
+        return request(eventId, seats, date, passengers, null);
+    }
+
+    private static BookingDtos.CreateBookingRequest request(Long eventId, List<Long> seats, LocalDate date, int passengers, Long coachId) {
+        BookingDtos.CreateBookingRequest req = new BookingDtos.CreateBookingRequest();
+        req.setEventId(eventId);
+        req.setSeatIds(seats);
+        req.setCoachId(coachId);
+        req.setJourneyDate(date.toString());
+        req.setCustomerName("Concurrent Buyer");
+        req.setCustomerEmail("concurrent@example.com");
+        req.setCustomerPhone("9999999999");
+        List<BookingDtos.Passenger> list = new ArrayList<>();
+        for (int p = 0; p < passengers; p++) {
+            list.add(BookingDtos.Passenger.builder().name("Passenger " + p).age(30).gender("OTHER").build());
+        }
+        req.setPassengers(list);
+        return req;
+    }
+}
@@ -0,0 +1,145 @@
+package com.example.ticketbooking.service;
+
+import com.example.ticketbooking.dto.JourneyDtos;
+import com.example.ticketbooking.repository.TrainScheduleRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class JourneyPlannerTest {
+
+    private static final LocalDate DATE = LocalDate.of(2026, 3, 2);
+
+    private final TrainScheduleRepository trainScheduleRepository = mock(TrainScheduleRepository.class);
+    private final JourneyPlanner planner = new JourneyPlanner(trainScheduleRepository, 30, 48, 3);
+
+    private record Halt(Long eventId, String trainNumber, String trainName, Integer sequenceNumber, String stationCode,
+                        LocalTime arrivalTime, LocalTime departureTime, String dayNumber, String runningDays) implements TrainScheduleRepository.HaltView {
+        public Long getEventId() { return eventId; }
+        public String getTrainNumber() { return trainNumber; }
+        public String getTrainName() { return trainName; }
+        public Integer getSequenceNumber() { return sequenceNumber; }
+        public String getStationCode() { return stationCode; }
+        public String getStationName() { return stationCode; }
+        public LocalTime getArrivalTime() { return arrivalTime; }
+        public LocalTime getDepartureTime() { return departureTime; }
+        public String getDayNumber() { return dayNumber; }
+        public String getRunningDays() { return runningDays; }
+    }
+
+    @BeforeEach
+    void setUp() {
+        List<TrainScheduleRepository.HaltView> halts = new ArrayList<>();
+        // A -> B -> C, then on from C either just after the minimum connection time or just inside it
+        route(halts, 1L, "A 08:00", "B 10:00 10:05", "C 12:00");
+        route(halts, 2L, "C 12:40", "D 15:00");
+        route(halts, 3L, "C 12:20", "D 14:00");
+        // Slow direct train
+        route(halts, 4L, "A 09:00", "D 20:00");
+        // Overnight, with the day stated on the arrival halt
+        halts.add(new Halt(5L, "10005", "Train 5", 1, "E", null, LocalTime.of(22, 0), "1", null));
+        halts.add(new Halt(5L, "10005", "Train 5", 2, "F", LocalTime.of(6, 0), null, "Day 2", null));
+        // Tuesdays and Thursdays only
+        routeOn(halts, 6L, "TUE,THU", "G 08:00", "H 10:00");
+        // Sundays only, reaching K after midnight
+        halts.add(new Halt(7L, "10007", "Train 7", 1, "J", null, LocalTime.of(23, 0), "1", "SUN"));
+        halts.add(new Halt(7L, "10007", "Train 7", 2, "K", LocalTime.of(1, 0), LocalTime.of(1, 5), "2", "SUN"));
+        halts.add(new Halt(7L, "10007", "Train 7", 3, "L", LocalTime.of(3, 0), null, "2", "SUN"));
+        when(trainScheduleRepository.findHalts()).thenReturn(halts);
+        planner.rebuild();
+    }
+
+    @Test
+    void a_change_of_train_beats_the_slow_direct_train() {
+        List<JourneyDtos.Journey> journeys = planner.plan("a", "D", DATE, LocalTime.of(7, 0), 3);
+
+        assertThat(journeys).extracting(JourneyDtos.Journey::getTransfers).containsExactly(0, 1);
+        assertThat(journeys.get(0).getLegs()).extracting(JourneyDtos.Leg::getEventId).containsExactly(4L);
+        assertThat(journeys.get(0).getArrivalTime()).isEqualTo(DATE.atTime(20, 0));
+
+        JourneyDtos.Journey change = journeys.get(1);
+        assertThat(change.getDepartureTime()).isEqualTo(DATE.atTime(8, 0));
+        assertThat(change.getArrivalTime()).isEqualTo(DATE.atTime(15, 0));
+        assertThat(change.getDurationMinutes()).isEqualTo(420);
+        assertThat(change.getLegs()).extracting(JourneyDtos.Leg::getEventId).containsExactly(1L, 2L);
+        JourneyDtos.Leg first = change.getLegs().get(0);
+        assertThat(first.getFromStation()).isEqualTo("A");
+        assertThat(first.getToStation()).isEqualTo("C");
+        assertThat(first.getArrivalTime()).isEqualTo(DATE.atTime(12, 0));
+        assertThat(change.getLegs().get(1).getDepartureTime()).isEqualTo(DATE.atTime(12, 40));
+    }
+
+    @Test
+    void transfers_are_capped_by_the_request() {
+        List<JourneyDtos.Journey> journeys = planner.plan("A", "D", DATE, LocalTime.of(7, 0), 0);
+
+        assertThat(journeys).hasSize(1);
+        assertThat(journeys.get(0).getLegs()).extracting(JourneyDtos.Leg::getEventId).containsExactly(4L);
+    }
+
+    @Test
+    void missed_departures_roll_over_to_the_next_day() {
+        List<JourneyDtos.Journey> journeys = planner.plan("A", "D", DATE, LocalTime.of(10, 0), 3);
+
+        assertThat(journeys).extracting(JourneyDtos.Journey::getArrivalTime)
+                .containsExactly(DATE.plusDays(1).atTime(20, 0), DATE.plusDays(1).atTime(15, 0));
+        assertThat(journeys.get(1).getLegs()).extracting(JourneyDtos.Leg::getDepartureTime)
+                .containsExactly(DATE.plusDays(1).atTime(8, 0), DATE.plusDays(1).atTime(12, 40));
+    }
+
+    @Test
+    void overnight_trains_arrive_the_next_morning() {
+        List<JourneyDtos.Journey> journeys = planner.plan("E", "F", DATE, null, 3);
+
+        assertThat(journeys).hasSize(1);
+        assertThat(journeys.get(0).getDepartureTime()).isEqualTo(DATE.atTime(22, 0));
+        assertThat(journeys.get(0).getArrivalTime()).isEqualTo(DATE.plusDays(1).atTime(6, 0));
+        assertThat(journeys.get(0).getDurationMinutes()).isEqualTo(480);
+    }
+
+    @Test
+    void trains_are_only_boarded_on_the_days_they_run() {
+        // DATE is a Monday
+        assertThat(planner.plan("G", "H", DATE, LocalTime.of(7, 0), 3)).extracting(JourneyDtos.Journey::getDepartureTime)
+                .containsExactly(DATE.plusDays(1).atTime(8, 0));
+        assertThat(planner.plan("G", "H", DATE.plusDays(1), LocalTime.of(9, 0), 3)).extracting(JourneyDtos.Journey::getDepartureTime)
+                .containsExactly(DATE.plusDays(3).atTime(8, 0));
+    }
+
+    @Test
+    void running_days_count_from_the_first_station() {
+        // The Sunday run is at K early on Monday
+        assertThat(planner.plan("K", "L", DATE, null, 3)).extracting(JourneyDtos.Journey::getDepartureTime)
+                .containsExactly(DATE.atTime(1, 5));
+        assertThat(planner.plan("K", "L", DATE.plusDays(1), null, 3)).isEmpty();
+    }
+
+    @Test
+    void unknown_unreachable_or_identical_stations_give_nothing() {
+        assertThat(planner.plan("A", "X", DATE, null, 3)).isEmpty();
+        assertThat(planner.plan("D", "A", DATE, null, 3)).isEmpty();
+        assertThat(planner.plan("A", "A", DATE, null, 3)).isEmpty();
+    }
+
+    // Each stop is "CODE hh:mm" for a terminus or "CODE arrival departure" for a halt on the way
+    private static void route(List<TrainScheduleRepository.HaltView> halts, Long eventId, String... stops) {
+        routeOn(halts, eventId, null, stops);
+    }
+
+    private static void routeOn(List<TrainScheduleRepository.HaltView> halts, Long eventId, String runningDays, String... stops) {
+        for (int i = 0; i < stops.length; i++) {
+            String[] parts = stops[i].split(" ");
+            LocalTime arrival = i == 0 ? null : LocalTime.parse(parts[1]);
+            LocalTime departure = i == stops.length - 1 ? null : LocalTime.parse(parts[parts.length - 1]);
+            halts.add(new Halt(eventId, "1000" + eventId, "Train " + eventId, i + 1, parts[0], arrival, departure, null, runningDays));
+        }
+    }
+}
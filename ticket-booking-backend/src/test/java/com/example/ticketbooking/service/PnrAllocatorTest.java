@@ -0,0 +1,108 @@
+package com.example.ticketbooking.service;
+
+import com.example.ticketbooking.model.PnrBlock;
+import com.example.ticketbooking.repository.PNRRepository;
+import com.example.ticketbooking.repository.PnrBlockRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.atMost;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class PnrAllocatorTest {
+
+    private static final long[] KEYS = PnrAllocator.roundKeys("test-secret");
+
+    @Test
+    void permutation_round_trips_and_stays_within_nine_digits() {
+        long[] serials = {0, 1, 2, 999, 1000, 123_456_789, 999_999_999};
+        for (long serial : serials) {
+            long scrambled = PnrAllocator.permute(serial, KEYS);
+            assertThat(scrambled).isBetween(0L, 999_999_999L);
+            assertThat(PnrAllocator.unpermute(scrambled, KEYS)).isEqualTo(serial);
+        }
+    }
+
+    @Test
+    void consecutive_serials_map_to_distinct_unrelated_numbers() {
+        Set<Long> seen = new HashSet<>();
+        for (long serial = 0; serial < 10_000; serial++) {
+            assertThat(seen.add(PnrAllocator.permute(serial, KEYS))).isTrue();
+        }
+        assertThat(PnrAllocator.permute(1, KEYS) - PnrAllocator.permute(0, KEYS)).isNotEqualTo(1);
+    }
+
+    @Test
+    void the_key_depends_on_the_whole_secret() {
+        assertThat(PnrAllocator.roundKeys("test-secret")).isEqualTo(KEYS);
+        assertThat(PnrAllocator.roundKeys("test-secreu")).isNotEqualTo(KEYS);
+    }
+
+    @Test
+    void check_digit_follows_luhn() {
+        // The textbook example: 7992739871 completes to 79927398713
+        assertThat(PnrAllocator.checkDigit("7992739871")).isEqualTo(3);
+        String pnr = PnrAllocator.encode(PnrAllocator.permute(42, KEYS));
+        assertThat(pnr).hasSize(10).containsOnlyDigits();
+        assertThat(luhnValid(pnr)).isTrue();
+        String typo = pnr.substring(0, 3) + (char) ('0' + (pnr.charAt(3) - '0' + 1) % 10) + pnr.substring(4);
+        assertThat(luhnValid(typo)).isFalse();
+    }
+
+    @Test
+    void numbers_taken_before_are_looked_up_once_per_block_and_skipped() {
+        PnrBlockRepository pnrBlockRepository = mock(PnrBlockRepository.class);
+        PNRRepository pnrRepository = mock(PNRRepository.class);
+        TransactionTemplate transactionTemplate = mock(TransactionTemplate.class);
+        when(transactionTemplate.execute(any())).thenAnswer(inv -> inv.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+        AtomicLong blockIds = new AtomicLong(7);
+        when(pnrBlockRepository.save(any())).thenAnswer(inv -> {
+            PnrBlock block = inv.getArgument(0);
+            block.setId(blockIds.getAndIncrement());
+            return block;
+        });
+        String[] block = new String[5];
+        for (int i = 0; i < block.length; i++) block[i] = PnrAllocator.encode(PnrAllocator.permute(7_000 + i, KEYS));
+        // Two numbers of the block already belong to PNRs issued some other way
+        when(pnrRepository.findExistingPnrNumbers(any())).thenReturn(List.of(block[0], block[2]));
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            PnrAllocator allocator = new PnrAllocator(pnrBlockRepository, pnrRepository, transactionTemplate, executor, "test-secret");
+
+            assertThat(List.of(allocator.next(), allocator.next(), allocator.next())).containsExactly(block[1], block[3], block[4]);
+        } finally {
+            executor.shutdownNow();
+        }
+        // One lookup for the block in use and at most one for the spare reserved behind it
+        verify(pnrRepository, atMost(2)).findExistingPnrNumbers(any());
+        verify(pnrRepository, times(1)).findExistingPnrNumbers(argThat(numbers -> numbers.size() == 1000 && numbers.contains(block[0])));
+    }
+
+    private static boolean luhnValid(String number) {
+        int sum = 0;
+        for (int i = number.length() - 1, pos = 0; i >= 0; i--, pos++) {
+            int d = number.charAt(i) - '0';
+            if (pos % 2 == 1) {
+                d *= 2;
+                if (d > 9) d -= 9;
+            }
+            sum += d;
+        }
+        return sum % 10 == 0;
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.ticketbooking.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ReservationTimingWheelTest {
+
+    private static final long TICK = 100;
+    private static final long START = 1_000_000;
+
+    @Test
+    void expires_on_the_tick_that_reaches_the_deadline() {
+        ReservationTimingWheel wheel = new ReservationTimingWheel(TICK, START);
+        wheel.schedule(1L, START + 250);
+
+        assertThat(wheel.advance(START + 200)).isEmpty();
+        assertThat(wheel.advance(START + 299)).isEmpty();
+        assertThat(wheel.advance(START + 300)).containsExactly(1L);
+        assertThat(wheel.size()).isZero();
+        assertThat(wheel.advance(START + 10_000)).isEmpty();
+    }
+
+    @Test
+    void past_deadlines_come_out_on_the_next_advance() {
+        ReservationTimingWheel wheel = new ReservationTimingWheel(TICK, START);
+        wheel.schedule(1L, START - 5_000);
+
+        assertThat(wheel.size()).isZero();
+        assertThat(wheel.advance(START)).containsExactly(1L);
+    }
+
+    @Test
+    void rescheduling_replaces_the_earlier_deadline() {
+        ReservationTimingWheel wheel = new ReservationTimingWheel(TICK, START);
+        wheel.schedule(1L, START + 500);
+        wheel.schedule(1L, START + 2_000);
+
+        assertThat(wheel.size()).isEqualTo(1);
+        assertThat(wheel.advance(START + 1_000)).isEmpty();
+        assertThat(wheel.advance(START + 2_000)).containsExactly(1L);
+    }
+
+    @Test
+    void deadlines_on_every_level_cascade_down_and_expire_on_time() {
+        ReservationTimingWheel wheel = new ReservationTimingWheel(TICK, START);
+        // One tick, just past level 0, level 2 and level 3, and beyond the top level
+        long[] ticks = {1, 64, 65, 4_095, 4_097, 300_000, 16_777_300};
+        for (int i = 0; i < ticks.length; i++) wheel.schedule(i, START + ticks[i] * TICK);
+
+        List<Long> expired = new ArrayList<>();
+        for (int i = 0; i < ticks.length; i++) {
+            assertThat(wheel.advance(START + ticks[i] * TICK - 1)).as("before deadline %d", i).isEmpty();
+            List<Long> now = wheel.advance(START + ticks[i] * TICK);
+            assertThat(now).as("at deadline %d", i).containsExactly((long) i);
+            expired.addAll(now);
+        }
+        assertThat(expired).hasSize(ticks.length);
+        assertThat(wheel.size()).isZero();
+    }
+
+    @Test
+    void a_long_jump_expires_everything_due() {
+        ReservationTimingWheel wheel = new ReservationTimingWheel(TICK, START);
+        for (long id = 0; id < 200; id++) wheel.schedule(id, START + (id * 37 + 1) * TICK);
+
+        assertThat(wheel.advance(START + 200L * 37 * TICK)).hasSize(200).doesNotHaveDuplicates();
+        assertThat(wheel.size()).isZero();
+    }
+
+    @Test
+    void rejects_a_non_positive_tick() {
+        assertThatThrownBy(() -> new ReservationTimingWheel(0, START)).isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,84 @@
+package com.example.ticketbooking.service;
+
+import com.example.ticketbooking.model.Booking;
+import com.example.ticketbooking.model.Seat;
+import com.example.ticketbooking.repository.BookingRepository;
+import com.example.ticketbooking.repository.SeatRepository;
+import com.example.ticketbooking.repository.TrainScheduleRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Limit;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static com.example.ticketbooking.service.SeatInventoryTest.slot;
+import static com.example.ticketbooking.service.SeatInventoryTest.stop;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class SeatClaimServiceTest {
+
+    private static final LocalDate DATE = LocalDate.of(2030, 1, 1);
+
+    private final SeatRepository seatRepository = mock(SeatRepository.class);
+    private final BookingRepository bookingRepository = mock(BookingRepository.class);
+    private final SeatInventoryService seatInventoryService = mock(SeatInventoryService.class);
+    private final SeatClaimService claimService = new SeatClaimService(seatRepository, bookingRepository, seatInventoryService,
+            mock(PlatformTransactionManager.class));
+
+    @Test
+    void seats_the_leg_masks_reject_on_a_long_route_are_passed_over() {
+        // 41 halts make 40 legs, more than fit in a seat's bits, so the first two legs share one
+        List<TrainScheduleRepository.StopView> stops = IntStream.rangeClosed(1, 41).mapToObj(i -> stop(i, "S" + i)).toList();
+        SeatLayout layout = SeatLayout.of(1L, DATE, null,
+                List.of(slot(1, 10, "SL"), slot(2, 10, "SL"), slot(3, 10, "SL"), slot(4, 10, "SL")), stops);
+        assertThat(layout.legMask(1, 2) & layout.legMask(2, 3)).isNotZero();
+        when(seatInventoryService.layout(1L)).thenReturn(layout);
+        when(seatInventoryService.resolveDate(1L, DATE)).thenReturn(DATE);
+        ReflectionTestUtils.setField(claimService, "mode", SeatClaimService.Mode.PESSIMISTIC);
+
+        // The database compares exact stops, so seat 1, sold from the first to the second halt, looks free from the second on
+        List<Long> queriedAfter = new ArrayList<>();
+        when(seatRepository.claimAvailable(eq(1L), eq(10L), eq(DATE), anyBoolean(), any(), anyInt(), anyInt(), anyLong(), any()))
+                .thenAnswer(inv -> {
+                    long afterId = inv.getArgument(7);
+                    queriedAfter.add(afterId);
+                    return seatsAfter(afterId, ((Limit) inv.getArgument(8)).max());
+                });
+        when(bookingRepository.findHeldSeatsByIds(eq(1L), eq(DATE), anyBoolean(), any(), any())).thenAnswer(inv -> {
+            Collection<Long> ids = inv.getArgument(4);
+            return ids.contains(1L) ? List.of(held(1L, 1, 2)) : List.of();
+        });
+
+        List<Long> claimed = claimService.claimAvailable(1L, DATE, 2, 3, null, 10L, 2);
+
+        assertThat(claimed).containsExactly(2L, 3L);
+        assertThat(queriedAfter).containsExactly(Long.MIN_VALUE, 2L);
+    }
+
+    // Seats 1 to 4 above the given id, as the query would lock them
+    private static List<Seat> seatsAfter(long afterId, int limit) {
+        return IntStream.rangeClosed(1, 4).filter(id -> id > afterId).limit(limit)
+                .mapToObj(id -> Seat.builder().id((long) id).build()).toList();
+    }
+
+    private static BookingRepository.HeldSeatView held(Long seatId, Integer fromStop, Integer toStop) {
+        return new BookingRepository.HeldSeatView() {
+            public Long getSeatId() { return seatId; }
+            public Booking.Status getStatus() { return Booking.Status.CONFIRMED; }
+            public Integer getFromStop() { return fromStop; }
+            public Integer getToStop() { return toStop; }
+        };
+    }
+}
@@ -0,0 +1,145 @@
+package com.example.ticketbooking.service;
+
+import com.example.ticketbooking.model.Seat;
+import com.example.ticketbooking.repository.SeatRepository;
+import com.example.ticketbooking.repository.TrainScheduleRepository;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SeatInventoryTest {
+
+    private final SeatLayout layout = SeatLayout.of(1L, LocalDate.of(2030, 1, 1), null,
+            List.of(slot(101, 10, "SL"), slot(102, 10, "SL"), slot(103, 10, "SL"), slot(201, 20, "3A"), slot(202, 20, "3A")),
+            List.of(stop(1, "A"), stop(2, "B"), stop(3, "C"), stop(4, "D")));
+    private final SeatInventory inventory = new SeatInventory(layout, LocalDate.of(2030, 1, 1));
+
+    private long legs(String from, String to) {
+        return layout.legMask(layout.stopSequence(from), layout.stopSequence(to));
+    }
+
+    @Test
+    void a_seat_freed_at_an_intermediate_stop_can_be_sold_onwards() {
+        inventory.hold(List.of(101L), legs("A", "B"));
+
+        inventory.hold(List.of(101L), legs("B", "D"));
+        assertThat(inventory.statusOf(101L, legs("A", "B"))).isEqualTo(Seat.Status.RESERVED);
+        assertThat(inventory.statusOf(101L, legs("C", "D"))).isEqualTo(Seat.Status.RESERVED);
+        assertThatThrownBy(() -> inventory.hold(List.of(101L), legs("A", "C"))).isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void a_hold_takes_every_seat_or_none() {
+        inventory.hold(List.of(102L), layout.fullMask());
+
+        assertThatThrownBy(() -> inventory.hold(List.of(101L, 102L, 103L), legs("A", "B")))
+                .isInstanceOf(IllegalStateException.class);
+        assertThat(inventory.statusOf(101L, layout.fullMask())).isEqualTo(Seat.Status.AVAILABLE);
+        assertThat(inventory.statusOf(103L, layout.fullMask())).isEqualTo(Seat.Status.AVAILABLE);
+    }
+
+    @Test
+    void transitions_only_move_seats_in_the_expected_state() {
+        long ab = legs("A", "B");
+        inventory.hold(List.of(101L), ab);
+
+        assertThat(inventory.transition(List.of(101L, 102L), ab, Seat.Status.RESERVED, Seat.Status.BOOKED)).containsExactly(102L);
+        assertThat(inventory.statusOf(101L, ab)).isEqualTo(Seat.Status.BOOKED);
+        // Sold on A-B only, so the rest of the route stays free
+        assertThat(inventory.statusOf(101L, legs("B", "D"))).isEqualTo(Seat.Status.AVAILABLE);
+        assertThat(inventory.transition(List.of(101L), ab, Seat.Status.RESERVED, Seat.Status.AVAILABLE)).containsExactly(101L);
+    }
+
+    @Test
+    void auto_assignment_picks_free_seats_of_the_requested_class() {
+        inventory.hold(List.of(201L), legs("A", "C"));
+
+        assertThat(inventory.holdAvailable("3A", null, 1, legs("B", "D"))).containsExactly(202L);
+        assertThat(inventory.holdAvailable("3A", null, 1, legs("B", "D"))).isEmpty();
+        assertThat(inventory.holdAvailable("3A", null, 1, legs("C", "D"))).containsExactly(201L);
+    }
+
+    @Test
+    void route_counts_follow_holds_transitions_and_releases() {
+        long ab = legs("A", "B"), cd = legs("C", "D");
+        inventory.hold(List.of(101L), ab);
+        inventory.hold(List.of(101L), cd);
+        inventory.hold(List.of(102L), ab);
+        inventory.hold(List.of(201L), layout.fullMask());
+        assertCountsMatchSeats();
+        assertThat(inventory.counts(coachOf(101L), layout.fullMask())).containsExactly(1, 2, 0);
+
+        inventory.transition(List.of(101L), cd, Seat.Status.RESERVED, Seat.Status.BOOKED);
+        assertCountsMatchSeats();
+        // Held on one leg and sold on another counts once, as sold
+        assertThat(inventory.counts(coachOf(101L), layout.fullMask())).containsExactly(1, 1, 1);
+
+        inventory.transition(List.of(101L, 102L), ab, Seat.Status.RESERVED, Seat.Status.AVAILABLE);
+        inventory.transition(List.of(201L), layout.fullMask(), Seat.Status.RESERVED, Seat.Status.AVAILABLE);
+        assertCountsMatchSeats();
+        assertThat(inventory.counts(coachOf(101L), layout.fullMask())).containsExactly(2, 0, 1);
+        assertThat(inventory.counts(coachOf(201L), layout.fullMask())).containsExactly(2, 0, 0);
+    }
+
+    @Test
+    void route_counts_agree_with_the_seats_after_random_changes() {
+        Random random = new Random(7);
+        List<Long> seats = List.of(101L, 102L, 103L, 201L, 202L);
+        Seat.Status[] statuses = Seat.Status.values();
+        for (int step = 0; step < 2_000; step++) {
+            int from = random.nextInt(3), to = from + 1 + random.nextInt(3 - from);
+            long mask = layout.legMask(from + 1, to + 1);
+            List<Long> pick = List.of(seats.get(random.nextInt(seats.size())));
+            if (random.nextBoolean()) {
+                try {
+                    inventory.hold(pick, mask);
+                } catch (IllegalStateException taken) {
+                    // Already held or sold on one of the legs
+                }
+            } else {
+                inventory.transition(pick, mask, statuses[random.nextInt(statuses.length)], statuses[random.nextInt(statuses.length)]);
+            }
+            assertCountsMatchSeats();
+        }
+    }
+
+    @Test
+    void seats_of_another_event_are_refused() {
+        assertThatThrownBy(() -> inventory.hold(List.of(999L), layout.fullMask())).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private int coachOf(long seatId) {
+        return layout.coachOfSlot(layout.slotOf(seatId));
+    }
+
+    // The whole-route counts kept on each change must equal a count of the seats themselves
+    private void assertCountsMatchSeats() {
+        for (int coach = 0; coach < layout.coachCount(); coach++) {
+            int[] expected = new int[Seat.Status.values().length];
+            for (int slot = layout.coachStart(coach); slot < layout.coachStart(coach) + layout.coachSize(coach); slot++) {
+                expected[inventory.statusOf(layout.seatId(slot), layout.fullMask()).ordinal()]++;
+            }
+            assertThat(inventory.counts(coach, layout.fullMask())).as("coach %d", coach).containsExactly(expected);
+        }
+    }
+
+    static SeatRepository.SeatSlotView slot(long id, long coachId, String classType) {
+        return new SeatRepository.SeatSlotView() {
+            public Long getId() { return id; }
+            public Long getCoachId() { return coachId; }
+            public String getClassType() { return classType; }
+        };
+    }
+
+    static TrainScheduleRepository.StopView stop(int sequence, String code) {
+        return new TrainScheduleRepository.StopView() {
+            public Integer getSequenceNumber() { return sequence; }
+            public String getStationCode() { return code; }
+        };
+    }
+}
@@ -0,0 +1,107 @@
+package com.example.ticketbooking.service;
+
+import com.example.ticketbooking.model.Station;
+import com.example.ticketbooking.repository.StationRepository;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class StationLocatorTest {
+
+    private final StationRepository stationRepository = mock(StationRepository.class);
+    private final StationLocator locator = new StationLocator(stationRepository);
+
+    @Test
+    void nearest_stations_come_closest_first_with_great_circle_distances() {
+        load(List.of(
+                station("NDLS", 28.6430, 77.2194),
+                station("AGC", 27.1591, 77.9897),
+                station("MMCT", 18.9696, 72.8194),
+                station("HWH", 22.5839, 88.3425),
+                station("XXX", null, null)));
+
+        List<StationLocator.Nearby> nearby = locator.nearest(28.6139, 77.2090, 3, null);
+
+        assertThat(nearby).extracting(n -> n.station().getCode()).containsExactly("NDLS", "AGC", "MMCT");
+        assertThat(nearby.get(0).distanceKm()).isCloseTo(3.4, within(0.2));
+        assertThat(nearby.get(1).distanceKm()).isCloseTo(178, within(2.0));
+        assertThat(locator.nearest(28.6139, 77.2090, 10, null)).hasSize(4);
+    }
+
+    @Test
+    void radius_limits_how_far_away_a_station_may_be() {
+        load(List.of(
+                station("NDLS", 28.6430, 77.2194),
+                station("AGC", 27.1591, 77.9897),
+                station("MMCT", 18.9696, 72.8194)));
+
+        assertThat(locator.nearest(28.6139, 77.2090, 5, 200.0)).extracting(n -> n.station().getCode())
+                .containsExactly("NDLS", "AGC");
+        assertThat(locator.nearest(28.6139, 77.2090, 5, 1.0)).isEmpty();
+        assertThat(locator.nearest(28.6139, 77.2090, 0, null)).isEmpty();
+    }
+
+    @Test
+    void neighbours_across_the_date_line_are_close() {
+        load(List.of(
+                station("EAST", 0.0, 179.9),
+                station("WEST", 0.0, -179.9),
+                station("MID", 0.0, 0.0)));
+
+        List<StationLocator.Nearby> nearby = locator.nearest(0.0, 179.95, 2, null);
+
+        assertThat(nearby).extracting(n -> n.station().getCode()).containsExactlyInAnyOrder("EAST", "WEST");
+        assertThat(nearby.get(1).distanceKm()).isLessThan(20);
+    }
+
+    @Test
+    void matches_a_brute_force_scan() {
+        Random random = new Random(42);
+        List<Station> stations = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            stations.add(station("S" + i, 8 + random.nextDouble() * 27, 68 + random.nextDouble() * 29));
+        }
+        load(stations);
+
+        for (int trial = 0; trial < 50; trial++) {
+            double lat = 8 + random.nextDouble() * 27, lon = 68 + random.nextDouble() * 29;
+            Double radius = trial % 2 == 0 ? null : 100 + random.nextDouble() * 400;
+            List<Station> expected = stations.stream()
+                    .filter(s -> radius == null || haversine(lat, lon, s) <= radius)
+                    .sorted(Comparator.comparingDouble(s -> haversine(lat, lon, s)))
+                    .limit(7)
+                    .toList();
+
+            List<StationLocator.Nearby> nearby = locator.nearest(lat, lon, 7, radius);
+
+            assertThat(nearby).extracting(StationLocator.Nearby::station).containsExactlyElementsOf(expected);
+            for (StationLocator.Nearby n : nearby) {
+                assertThat(n.distanceKm()).isCloseTo(haversine(lat, lon, n.station()), within(1e-6));
+            }
+        }
+    }
+
+    private void load(List<Station> stations) {
+        when(stationRepository.findAll()).thenReturn(stations);
+        locator.rebuild();
+    }
+
+    private static double haversine(double lat, double lon, Station s) {
+        double dLat = Math.toRadians(s.getLatitude() - lat), dLon = Math.toRadians(s.getLongitude() - lon);
+        double a = Math.pow(Math.sin(dLat / 2), 2)
+                + Math.cos(Math.toRadians(lat)) * Math.cos(Math.toRadians(s.getLatitude())) * Math.pow(Math.sin(dLon / 2), 2);
+        return 2 * 6371.0088 * Math.asin(Math.sqrt(a));
+    }
+
+    private static Station station(String code, Double latitude, Double longitude) {
+        return Station.builder().code(code).name(code).city(code).latitude(latitude).longitude(longitude).build();
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.ticketbooking.service;
+
+import com.example.ticketbooking.model.Station;
+import com.example.ticketbooking.repository.StationRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class StationSearchIndexTest {
+
+    private final StationRepository stationRepository = mock(StationRepository.class);
+
+    @BeforeEach
+    void setUp() {
+        when(stationRepository.findAll()).thenReturn(List.of(
+                station("DEE", "Delhi Sarai Rohilla", "Delhi", "B"),
+                station("SRT", "Surat", "Surat", null),
+                station("DLI", "Delhi Junction", "Delhi", "A"),
+                station("BXA", "Belha", "Belha", "A1"),
+                station("NDLS", "New Delhi", "Delhi", "A1"),
+                station("MMCT", "Mumbai Central", "Mumbai", "A1"),
+                station("SWN", "Suriyawan", "Bhadohi", "F"),
+                station("HWH", "Howrah Junction", "Kolkata", "A1")));
+    }
+
+    @Test
+    void prefixes_of_codes_names_cities_and_words_rank_by_category() {
+        StationSearchIndex index = index(20);
+
+        assertThat(codes(index.search("Delhi"))).containsExactly("NDLS", "DLI", "DEE");
+        assertThat(codes(index.search("  ndls "))).containsExactly("NDLS");
+        assertThat(codes(index.search("kolk"))).containsExactly("HWH");
+        assertThat(codes(index.search("junction"))).containsExactly("HWH", "DLI");
+        // Unknown categories come last
+        assertThat(codes(index.search("su"))).containsExactly("SWN", "SRT");
+    }
+
+    @Test
+    void longer_queries_also_match_one_edit_away_after_the_exact_matches() {
+        StationSearchIndex index = index(20);
+
+        assertThat(codes(index.search("mumbal"))).containsExactly("MMCT");
+        assertThat(codes(index.search("howrh"))).containsExactly("HWH");
+        // Belha is A1 but only a near match, so it follows the exact ones
+        assertThat(codes(index.search("delh"))).containsExactly("NDLS", "DLI", "DEE", "BXA");
+    }
+
+    @Test
+    void short_queries_match_exactly_only() {
+        StationSearchIndex index = index(20);
+
+        assertThat(index.search("dx")).isEmpty();
+        assertThat(index.search("  ")).isEmpty();
+        assertThat(index.search(null)).isEmpty();
+    }
+
+    @Test
+    void results_stop_at_the_limit() {
+        StationSearchIndex index = index(2);
+
+        assertThat(codes(index.search("delh"))).containsExactly("NDLS", "DLI");
+    }
+
+    private StationSearchIndex index(int limit) {
+        StationSearchIndex index = new StationSearchIndex(stationRepository, limit);
+        index.rebuild();
+        return index;
+    }
+
+    private static List<String> codes(List<Station> stations) {
+        return stations.stream().map(Station::getCode).toList();
+    }
+
+    private static Station station(String code, String name, String city, String category) {
+        return Station.builder().code(code).name(name).city(city).category(category).build();
+    }
+}
@@ -0,0 +1,103 @@
+package com.example.ticketbooking.service;
+
+import com.example.ticketbooking.dto.EventDtos;
+import com.example.ticketbooking.model.Event;
+import com.example.ticketbooking.repository.EventRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class TrainSearchIndexTest {
+
+    private static final LocalDate DAY = LocalDate.of(2026, 3, 2);
+
+    private final EventRepository eventRepository = mock(EventRepository.class);
+    private final TrainSearchIndex index = new TrainSearchIndex(eventRepository);
+
+    @BeforeEach
+    void setUp() {
+        when(eventRepository.findAll()).thenReturn(List.of(
+                train(1L, "New Delhi", "Mumbai Central", DAY, "Rajdhani", true, 130, 2500, "3A"),
+                train(2L, "New Delhi", "Howrah", DAY, "Express", false, 80, 700, "SL"),
+                train(3L, "Old Delhi", "Mumbai CST", DAY.plusDays(1), "Express", true, 95, 1200, "3A"),
+                train(4L, "Chennai Central", "Bengaluru", DAY, "Shatabdi", true, 110, null, "CC")));
+        index.rebuild();
+    }
+
+    @Test
+    void no_filters_returns_every_train() {
+        assertThat(ids(query(null, null, null, null, null, null, null))).containsExactly(1L, 2L, 3L, 4L);
+    }
+
+    @Test
+    void places_match_by_case_insensitive_substring() {
+        assertThat(ids(query("delhi", "mumbai", null, null, null, null, null))).containsExactly(1L, 3L);
+        assertThat(ids(query("DELHI", null, null, null, null, null, null))).containsExactly(1L, 2L, 3L);
+        assertThat(ids(query("agra", null, null, null, null, null, null))).isEmpty();
+    }
+
+    @Test
+    void filters_intersect() {
+        assertThat(ids(query(null, null, DAY, "express", null, null, null))).containsExactly(2L);
+        assertThat(ids(query("delhi", null, null, null, true, null, "3a"))).containsExactly(1L, 3L);
+        assertThat(ids(query(null, null, DAY, null, false, null, "3A"))).isEmpty();
+    }
+
+    @Test
+    void speed_and_fare_are_range_checked_and_missing_values_fail_them() {
+        assertThat(ids(query(null, null, null, null, null, 100, null))).containsExactly(1L, 4L);
+        assertThat(ids(new TrainSearchIndex.Query(null, null, null, null, null, null, null, null, 1500.0, null)))
+                .containsExactly(2L, 3L);
+    }
+
+    @Test
+    void upsert_refiles_a_train_and_remove_drops_it() {
+        index.upsert(train(2L, "Patna", "Howrah", DAY, "Express", false, 80, 700, "SL"));
+        assertThat(ids(query("delhi", null, null, null, null, null, null))).containsExactly(1L, 3L);
+        assertThat(ids(query("patna", null, null, null, null, null, null))).containsExactly(2L);
+
+        index.remove(1L);
+        assertThat(ids(query(null, null, null, null, null, null, "3A"))).containsExactly(3L);
+
+        // The freed slot is reused by the next new train
+        index.upsert(train(5L, "Pune", "Nagpur", DAY, "Express", true, 90, 900, "3A"));
+        assertThat(ids(query(null, null, null, null, null, null, "3A"))).containsExactlyInAnyOrder(3L, 5L);
+        assertThat(ids(query(null, null, null, null, null, null, null))).hasSize(4);
+    }
+
+    private static TrainSearchIndex.Query query(String source, String destination, LocalDate date, String trainType,
+                                                Boolean hasAC, Integer minSpeed, String classType) {
+        return new TrainSearchIndex.Query(source, destination, date, trainType, null, hasAC, null, minSpeed, null, classType);
+    }
+
+    private List<Long> ids(TrainSearchIndex.Query query) {
+        return index.search(query).stream().map(EventDtos.EventResponse::getId).toList();
+    }
+
+    private static Event train(Long id, String source, String destination, LocalDate day, String type, boolean ac,
+                               Integer speed, Integer fare, String classType) {
+        return Event.builder()
+                .id(id)
+                .name(source + " - " + destination)
+                .source(source)
+                .destination(destination)
+                .venue(source)
+                .startTime(LocalDateTime.of(day, LocalTime.of(16, 0)))
+                .endTime(LocalDateTime.of(day.plusDays(1), LocalTime.of(8, 0)))
+                .seatPrice(fare == null ? null : BigDecimal.valueOf(fare))
+                .trainType(type)
+                .hasAC(ac)
+                .averageSpeed(speed)
+                .classType(classType)
+                .build();
+    }
+}